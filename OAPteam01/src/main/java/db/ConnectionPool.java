@@ -0,0 +1,393 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections to a single database.
+ * Connections handed out by the pool are wrappers: calling {@code close()} on them returns the
+ * physical connection to the pool instead of closing it, so callers can keep using try-with-resources
+ * exactly as they would with a connection from DriverManager.
+ *
+ * <p>The pool:
+ * <ul>
+ *   <li>keeps between {@code minSize} and {@code maxSize} physical connections</li>
+ *   <li>can be pre-warmed so the first queries do not pay for the TCP and authentication handshake</li>
+ *   <li>validates idle connections before handing them out</li>
+ *   <li>evicts connections that have been idle longer than the idle timeout</li>
+ *   <li>gives up with an SQLException if no connection becomes available within the borrow timeout</li>
+ * </ul>
+ *
+ * @author Trudy Ann Roberts
+ */
+public class ConnectionPool {
+
+    /** Seconds to wait for a validation ping before the connection is considered broken. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /** Connections used more recently than this are handed out without a validation ping. */
+    private static final long VALIDATION_INTERVAL_MILLIS = 500;
+
+    /** How often the background task looks for idle connections to evict. */
+    private static final long EVICTION_INTERVAL_MILLIS = 30_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    /** Idle connections, most recently used first. */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    /** One permit per connection that may be borrowed at the same time. */
+    private final Semaphore permits;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Creates a new pool. No connections are opened until the pool is warmed up or the first
+     * connection is borrowed.
+     *
+     * @param url 					the JDBC url of the database
+     * @param user 					the database user
+     * @param password 				the password of the database user
+     * @param minSize 				number of connections the pool keeps open even when idle
+     * @param maxSize 				maximum number of connections that can be borrowed at the same time
+     * @param borrowTimeoutMillis 	how long a caller waits for a free connection before giving up
+     * @param idleTimeoutMillis 	how long a connection above {@code minSize} may stay idle before it is closed
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections,
+                EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available.
+     * The returned connection must be closed by the caller to give it back to the pool.
+     *
+     * @return a pooled connection to the database
+     * @throws SQLTransientConnectionException if no connection became available within the borrow timeout
+     * @throws SQLException if a new connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            activeConnections.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds at least {@code minSize} of them, so that the first
+     * queries after startup can skip the connection handshake.
+     *
+     * @throws SQLException if a connection could not be opened
+     */
+    public void warmUp() throws SQLException {
+        while (totalConnections.get() < minSize) {
+            idle.offerLast(openConnection());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool's current usage and historical wait statistics.
+     *
+     * @return the pool statistics
+     */
+    public PoolStats getStats() {
+        return new PoolStats(activeConnections.get(), idle.size(), totalConnections.get(), maxSize,
+                borrowCount.get(), totalWaitNanos.get(), maxWaitNanos.get(), borrowTimeouts.get());
+    }
+
+    /**
+     * Closes all idle connections and stops the eviction task. Connections that are currently
+     * borrowed are closed when they are given back.
+     */
+    public void shutdown() {
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still valid, discarding broken ones.
+     *
+     * @return a valid idle connection, or null if there are none
+     */
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (pooled.isUsable()) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    /**
+     * Opens a new physical connection and counts it against the pool.
+     */
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    /**
+     * Closes a physical connection and removes it from the pool's count.
+     */
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called when a borrowed connection is closed by the caller.
+     */
+    private void release(PooledConnection pooled, boolean reusable) {
+        activeConnections.decrementAndGet();
+        if (reusable && !evictor.isShutdown()) {
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            discard(pooled);
+        }
+        permits.release();
+    }
+
+    /**
+     * Closes connections that have been idle for longer than the idle timeout, as long as
+     * the pool stays at or above its minimum size, and then tops the pool back up to the minimum.
+     */
+    private void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastUsed < cutoff && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            System.err.println("Error refilling connection pool: " + e.getMessage());
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            // retry until we either win the race or somebody else recorded a longer wait
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        private final Connection connection;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Checks that the connection is still alive. Connections that were used very recently are
+         * trusted without a round trip to the server.
+         */
+        private boolean isUsable() {
+            try {
+                if (System.currentTimeMillis() - lastUsed < VALIDATION_INTERVAL_MILLIS) {
+                    return !connection.isClosed();
+                }
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Wraps the physical connection in a proxy that returns it to the pool on close.
+         */
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the lease is closed. Closing the lease
+     * closes any statements the caller left open, rolls back uncommitted work and hands the
+     * connection back to the pool.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        /** Number of tracked statements at which the closed ones are first dropped */
+        private static final int MIN_PRUNE_SIZE = 16;
+
+        private final PooledConnection pooled;
+
+        /**
+         * Statements created during the lease that may still be open. Statements the caller closed are dropped
+         * whenever the list has doubled, so a long lease that prepares a statement per batch stays small.
+         */
+        private final List<Statement> statements = new ArrayList<>();
+        private int pruneSize = MIN_PRUNE_SIZE;
+        private boolean closed;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled, reset());
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.connection;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            try {
+                Object result = method.invoke(pooled.connection, args);
+                if (result instanceof Statement) {
+                    if (statements.size() >= pruneSize) {
+                        pruneClosedStatements();
+                    }
+                    statements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Drops the statements the caller has closed, and waits until the open ones have doubled before
+         * looking again, so tracking a statement costs constant time on average.
+         */
+        private void pruneClosedStatements() {
+            statements.removeIf(this::isClosed);
+            pruneSize = Math.max(MIN_PRUNE_SIZE, statements.size() * 2);
+        }
+
+        /**
+         * Returns whether a statement is closed, or false if that can not be told, so that reset() closes it.
+         */
+        private boolean isClosed(Statement statement) {
+            try {
+                return statement.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Puts the connection back into a clean state for the next borrower.
+         *
+         * @return true if the connection can be reused, false if it should be discarded
+         */
+        private boolean reset() {
+            try {
+                for (Statement statement : statements) {
+                    statement.close();
+                }
+                if (!pooled.connection.getAutoCommit()) {
+                    pooled.connection.rollback();
+                    pooled.connection.setAutoCommit(true);
+                }
+                return !pooled.connection.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -1,30 +1,133 @@
 package db;
 
+import java.io.ByteArrayInputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 /**
  * This class will connect to the db. The idea is that other classes can import this class and then connect to the db through here.
+ * Connections are taken from a shared ConnectionPool, so the TCP and login handshake is only paid when the pool grows.
+ * Read-only queries can use getReadConnection(), which spreads them over the read replicas listed in the db.replicas system property.
+ * All connections are instrumented by QueryMonitor, which keeps per query timing statistics and logs slow queries.
  * @author Trudy Ann Roberts
  */
 public class DatabaseConnection {
 	/**
-	 * @param DB_URL is the url for the local db..
+	 * @param DB_URL is the url for the local db. rewriteBatchedStatements lets the driver send JDBC batches as multi-row inserts,
+	 * useServerPrepStmts and cachePrepStmts let MySQL parse each prepared statement once and reuse it.
 	 * @param DB_USER shows the username.
 	 * @param DB_PASSWORD is out individual passwords to the db.
 	 */
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/sakila";
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/sakila?rewriteBatchedStatements=true&useServerPrepStmts=true&cachePrepStmts=true";
     private static final String DB_USER = "student"; 
     private static final String DB_PASSWORD = "student"; 
+    
+    /**
+     * Pool settings. They can be overridden with system properties, e.g. -Ddb.pool.maxSize=20.
+     */
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = Long.getLong("db.pool.borrowTimeoutMillis", 5_000);
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("db.pool.idleTimeoutMillis", 300_000);
+    
+    private static final ConnectionPool POOL = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD,
+            POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MILLIS, POOL_IDLE_TIMEOUT_MILLIS);
+    
+    /**
+     * Read replicas, given as a comma separated list of JDBC urls, e.g.
+     * -Ddb.replicas=jdbc:mysql://replica1:3306/sakila,jdbc:mysql://replica2:3306/sakila
+     * A replica that fails is skipped for REPLICA_RETRY_MILLIS before it is tried again.
+     */
+    private static final String REPLICA_URLS = System.getProperty("db.replicas", "");
+    private static final long REPLICA_RETRY_MILLIS = Long.getLong("db.replicas.retryMillis", 30_000);
+    
+    private static final ReplicaRouter READ_ROUTER = new ReplicaRouter(createReplicaPools(), REPLICA_RETRY_MILLIS);
+    
+    /**
+     * Creates a connection pool for every configured read replica, using the same settings as the primary.
+     * @return the replica pools, or an empty list if no replicas are configured.
+     */
+    private static List<ConnectionPool> createReplicaPools() {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : REPLICA_URLS.split(",")) {
+            if (!url.trim().isEmpty()) {
+                pools.add(new ConnectionPool(url.trim(), DB_USER, DB_PASSWORD,
+                        POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MILLIS, POOL_IDLE_TIMEOUT_MILLIS));
+            }
+        }
+        return pools;
+    }
+    
     /**
      *  The Connection method is public so that we can access it from other classes.
      *  It can be called directly using the class name. It connects with the db through an API (JDBC). 
      *  With Connection we can create objects like Statement, PreparedStatement, and CallableStatement in order to do SQL queries.
+     *  The connection is borrowed from the pool, and closing it gives it back to the pool.
      * @return connection to db.
      * @throws SQLException means that any calling code must handle the exception.
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        return QueryMonitor.wrap(POOL.getConnection());
+    }
+    
+    /**
+     * Opens a connection for bulk loads with LOAD DATA LOCAL INFILE, which the pooled connections do not allow.
+     * The driver only sends an input stream, like the one FilmBulkLoader gives it, when allowLoadLocalInfile is
+     * set, and then it also sends any file the server asks for when no stream is set. allowLoadLocalInfileInPath
+     * is not checked in that case. So an empty stream is set on the connection as soon as it is opened, and a
+     * LOAD DATA LOCAL INFILE that the loader did not start gets no data instead of a file on this machine.
+     * The connection is not pooled, and closing it closes it.
+     * @return a new connection to the primary db.
+     * @throws SQLException if the db can not be reached.
+     */
+    public static Connection getBulkLoadConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(DB_URL + "&allowLoadLocalInfile=true", DB_USER, DB_PASSWORD);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.unwrap(com.mysql.cj.jdbc.JdbcStatement.class).setLocalInfileInputStream(new ByteArrayInputStream(new byte[0]));
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return QueryMonitor.wrap(connection);
+    }
+    
+    /**
+     * Returns a connection for read-only queries. The connection comes from the next healthy read replica in
+     * round-robin order, or from the primary db if no replicas are configured or none of them are reachable.
+     * Writes must always use getConnection(), since replicas may be read only and lag behind the primary.
+     * @return connection to a read replica or to the primary db.
+     * @throws SQLException if neither a replica nor the primary db can be reached.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection connection = READ_ROUTER.getConnection();
+        return connection != null ? QueryMonitor.wrap(connection) : getConnection();
+    }
+    
+    /**
+     * Returns the router that spreads reads over the replicas, for example to inspect their health and pool statistics.
+     * @return the replica router.
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        return READ_ROUTER;
+    }
+    
+    /**
+     * Opens the minimum number of pooled connections up front, so the first query does not have to wait for a handshake.
+     * @throws SQLException if the db can not be reached.
+     */
+    public static void warmUp() throws SQLException {
+        POOL.warmUp();
+    }
+    
+    /**
+     * Returns the current statistics of the connection pool: active and idle connections, wait times and borrow timeouts.
+     * @return a snapshot of the pool statistics.
+     */
+    public static PoolStats getPoolStats() {
+        return POOL.getStats();
     }
 }
 
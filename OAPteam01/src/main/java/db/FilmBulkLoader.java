@@ -0,0 +1,458 @@
+package db;
+
+import film.Film;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Loads a whole file of films with a few set based statements, instead of one INSERT per batch.
+ *
+ * <p>The films are streamed into a temporary staging table with LOAD DATA LOCAL INFILE, which sends
+ * them to the server as one tab separated stream. The genres are then resolved with a join on the
+ * category table, and the films, their film_category rows and their film_text rows are each copied
+ * from the staging table with a single INSERT ... SELECT. Films that can not be imported, and films
+ * that are already in the film table or earlier in the file, are marked in the staging table with the
+ * reason, and can be read back with {@link #reject(BiConsumer, BiConsumer)}.
+ *
+ * <p>The loader needs a connection from {@link DatabaseConnection#getBulkLoadConnection()}, with
+ * auto-commit disabled, and a MySQL 8.0 server that allows local_infile. The data is handed to the
+ * driver as an input stream, and an empty stream is put back once it has been sent, so the connection
+ * never sends a file from the client. The film, film_category, film_text and category tables are
+ * locked with LOCK TABLES from {@link #reject(BiConsumer, BiConsumer)} until the loader is closed, so
+ * no other connection can insert films while the duplicates are found and the film IDs are numbered
+ * after the highest one in the film table. LOCK TABLES commits the films staged so far, which only
+ * live in the staging table.
+ *
+ * <p>The loader is experimental: the tests run without a MySQL server, so its statements are not
+ * covered by them.
+ *
+ * <p>Use a loader in this order: {@link #stage(Iterator)}, {@link #reject(BiConsumer, BiConsumer)},
+ * {@link #insert(Consumer)}, then commit the connection. Closing the loader rolls back whatever has
+ * not been committed, unlocks the tables and drops the staging table, but does not close the connection.
+ *
+ * @author Erica Laub Varpe
+ */
+public class FilmBulkLoader implements AutoCloseable {
+
+    /** Length of film.title in the Sakila schema */
+    private static final int MAX_TITLE_LENGTH = 128;
+
+    /** Length of category.name in the Sakila schema */
+    private static final int MAX_GENRE_LENGTH = 25;
+
+    /** SQL statement for creating the staging table, which lives as long as the connection */
+    private static final String CREATE_STAGING_SQL =
+        "CREATE TEMPORARY TABLE film_import_staging (" +
+        "row_no INT UNSIGNED NOT NULL PRIMARY KEY, title TEXT NOT NULL, description TEXT, " +
+        "release_year INT NOT NULL, genre TEXT NOT NULL, category_id INT UNSIGNED, film_id INT UNSIGNED, " +
+        "reject_reason VARCHAR(255), duplicate BOOLEAN NOT NULL DEFAULT FALSE)";
+
+    /** SQL statement for streaming the films into the staging table. The file name is not used. */
+    private static final String LOAD_STAGING_SQL =
+        "LOAD DATA LOCAL INFILE 'films.tsv' INTO TABLE film_import_staging CHARACTER SET utf8mb4 " +
+        "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " +
+        "(row_no, title, description, release_year, genre)";
+
+    /** SQL statement for creating the genres of the staged films that are not in the category table */
+    private static final String CREATE_GENRES_SQL =
+        "INSERT INTO category (name) SELECT DISTINCT s.genre FROM film_import_staging s " +
+        "WHERE s.genre <> '' AND CHAR_LENGTH(s.genre) <= " + MAX_GENRE_LENGTH + " " +
+        "AND NOT EXISTS (SELECT 1 FROM category c WHERE c.name = s.genre)";
+
+    /** SQL statement for resolving the category of every staged film */
+    private static final String RESOLVE_GENRES_SQL =
+        "UPDATE film_import_staging s JOIN category c ON c.name = s.genre SET s.category_id = c.category_id";
+
+    /** SQL statement for marking the staged films that can not be imported */
+    private static final String MARK_REJECTED_SQL =
+        "UPDATE film_import_staging SET reject_reason = CASE " +
+        "WHEN category_id IS NULL THEN CONCAT('Genre not found: ', genre) " +
+        "WHEN CHAR_LENGTH(title) > " + MAX_TITLE_LENGTH + " THEN 'Title is longer than " + MAX_TITLE_LENGTH + " characters' " +
+        "WHEN release_year NOT BETWEEN 1901 AND 2155 THEN CONCAT('Release year out of range: ', release_year) " +
+        "END";
+
+    /**
+     * SQL statement for marking the staged films that are already in the film table. The titles are compared
+     * by the collation of the film table, which can use its title index.
+     */
+    private static final String MARK_IN_DATABASE_SQL =
+        "UPDATE film_import_staging s JOIN film f ON f.title = s.title AND f.release_year = s.release_year " +
+        "SET s.reject_reason = 'Already in the database', s.duplicate = TRUE WHERE s.reject_reason IS NULL";
+
+    /**
+     * SQL statement for collecting the first row of every title and release year left in the staging table.
+     * MySQL can not open a temporary table twice in one statement, so the rows are kept in a second one.
+     */
+    private static final String CREATE_FIRST_ROWS_SQL =
+        "CREATE TEMPORARY TABLE film_import_first_rows (PRIMARY KEY (row_no)) " +
+        "SELECT MIN(row_no) AS row_no FROM film_import_staging WHERE reject_reason IS NULL " +
+        "GROUP BY title, release_year";
+
+    /** SQL statement for marking the staged films that appear earlier in the file */
+    private static final String MARK_IN_FILE_SQL =
+        "UPDATE film_import_staging s LEFT JOIN film_import_first_rows r ON r.row_no = s.row_no " +
+        "SET s.reject_reason = 'Duplicate of an earlier row in the file', s.duplicate = TRUE " +
+        "WHERE s.reject_reason IS NULL AND r.row_no IS NULL";
+
+    /** SQL statement for dropping the first rows table */
+    private static final String DROP_FIRST_ROWS_SQL =
+        "DROP TEMPORARY TABLE IF EXISTS film_import_first_rows";
+
+    /** SQL query for reading back the rejected and duplicate films */
+    private static final String SELECT_REJECTED_SQL =
+        "SELECT title, description, release_year, genre, reject_reason, duplicate FROM film_import_staging " +
+        "WHERE reject_reason IS NOT NULL ORDER BY row_no";
+
+    /**
+     * SQL statement for locking every table the loader reads or writes, until the tables are unlocked. A table
+     * that a statement refers to by an alias must be locked under that alias too.
+     */
+    private static final String LOCK_TABLES_SQL =
+        "LOCK TABLES film WRITE, film AS f READ, film_category WRITE, film_text WRITE, " +
+        "category WRITE, category AS c READ";
+
+    /** SQL statement for unlocking the tables */
+    private static final String UNLOCK_TABLES_SQL =
+        "UNLOCK TABLES";
+
+    /** SQL query for the highest film ID, which can not change while the film table is locked */
+    private static final String LAST_FILM_ID_SQL =
+        "SELECT COALESCE(MAX(film_id), 0) FROM film";
+
+    /**
+     * SQL statement for numbering the accepted films after the last film ID, in file order. MySQL can not
+     * open the staging table twice in one statement, so the numbers are kept in a second temporary table.
+     */
+    private static final String CREATE_FILM_IDS_SQL =
+        "CREATE TEMPORARY TABLE film_import_ids (PRIMARY KEY (row_no)) " +
+        "SELECT row_no, ROW_NUMBER() OVER (ORDER BY row_no) + ? AS film_id FROM film_import_staging " +
+        "WHERE reject_reason IS NULL";
+
+    /** SQL statement for setting the film IDs of the accepted films */
+    private static final String ASSIGN_FILM_IDS_SQL =
+        "UPDATE film_import_staging s JOIN film_import_ids i ON i.row_no = s.row_no SET s.film_id = i.film_id";
+
+    /** SQL statement for dropping the film IDs table */
+    private static final String DROP_FILM_IDS_SQL =
+        "DROP TEMPORARY TABLE IF EXISTS film_import_ids";
+
+    /** SQL statement for copying the accepted films, with the same defaults as {@link FilmDAO} */
+    private static final String INSERT_FILMS_SQL =
+        "INSERT INTO film (film_id, title, description, release_year, language_id, rental_duration, " +
+        "rental_rate, length, replacement_cost, rating, special_features) " +
+        "SELECT film_id, title, description, release_year, ?, ?, ?, ?, ?, ?, ? FROM film_import_staging " +
+        "WHERE reject_reason IS NULL ORDER BY row_no";
+
+    /** SQL statement for linking the accepted films to their categories */
+    private static final String INSERT_FILM_CATEGORIES_SQL =
+        "INSERT INTO film_category (film_id, category_id) " +
+        "SELECT film_id, category_id FROM film_import_staging WHERE reject_reason IS NULL";
+
+    /** SQL statement for copying the searchable text of the accepted films to film_text */
+    private static final String INSERT_FILM_TEXT_SQL =
+        "INSERT INTO film_text (film_id, title, description) " +
+        "SELECT film_id, title, description FROM film_import_staging WHERE reject_reason IS NULL " +
+        "ON DUPLICATE KEY UPDATE title = VALUES(title), description = VALUES(description)";
+
+    /** SQL query for reading back the imported films */
+    private static final String SELECT_INSERTED_SQL =
+        "SELECT film_id, title, description, release_year, genre FROM film_import_staging " +
+        "WHERE reject_reason IS NULL ORDER BY row_no";
+
+    /** SQL statement for dropping the staging table */
+    private static final String DROP_STAGING_SQL =
+        "DROP TEMPORARY TABLE IF EXISTS film_import_staging";
+
+    /** Database connection used by this loader */
+    private final Connection connection;
+
+    /** Whether genres that do not exist in the category table are created */
+    private boolean autoCreateGenres;
+
+    /** Whether films that are already in the film table or earlier in the file are skipped */
+    private boolean skipDuplicates;
+
+    /** Whether the staging table has been created */
+    private boolean staged;
+
+    /** Whether the tables are locked */
+    private boolean locked;
+
+    /**
+     * Creates a loader on a connection that allows LOAD DATA LOCAL INFILE.
+     *
+     * @param connection The connection to use, from {@link DatabaseConnection#getBulkLoadConnection()}
+     */
+    public FilmBulkLoader(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sets whether genres that do not exist in the category table are created before the genres are resolved.
+     *
+     * @param autoCreateGenres true to create missing genres, false to reject films with unknown genres
+     */
+    public void setAutoCreateGenres(boolean autoCreateGenres) {
+        this.autoCreateGenres = autoCreateGenres;
+    }
+
+    /**
+     * Sets whether films that are already in the film table, or earlier in the file, are skipped. Titles are
+     * compared by the collation of the film table, which normally ignores case.
+     *
+     * @param skipDuplicates true to skip duplicates, false to import every film that is not rejected
+     */
+    public void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+    }
+
+    /**
+     * Streams films into the staging table. The films are read from the iterator while they are sent,
+     * so they do not have to fit in memory.
+     *
+     * @param films The films to load, in file order
+     * @return The number of films staged
+     * @throws SQLException If the films can not be loaded, or the iterator fails
+     */
+    public int stage(Iterator<Film> films) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(DROP_STAGING_SQL);
+            stmt.executeUpdate(CREATE_STAGING_SQL);
+            staged = true;
+
+            TabSeparatedFilms in = new TabSeparatedFilms(films);
+            com.mysql.cj.jdbc.JdbcStatement jdbcStmt = stmt.unwrap(com.mysql.cj.jdbc.JdbcStatement.class);
+            jdbcStmt.setLocalInfileInputStream(in);
+            try {
+                return stmt.executeUpdate(LOAD_STAGING_SQL);
+            } catch (SQLException e) {
+                if (in.failure != null) {
+                    throw new SQLException(in.failure.getMessage(), in.failure);
+                }
+                throw e;
+            } finally {
+                // the stream is kept by the connection, and without one the driver would send a file the server names
+                jdbcStmt.setLocalInfileInputStream(new ByteArrayInputStream(new byte[0]));
+            }
+        }
+    }
+
+    /**
+     * Resolves the genres of the staged films, creating missing genres if enabled, and marks the films
+     * that can not be imported: films with an unknown genre, a title longer than the film table allows,
+     * or a release year outside the range of the YEAR type. If duplicates are skipped, the other films that
+     * are already in the film table, or have the same title and release year as an earlier film, are marked too.
+     * The tables stay locked from here until the loader is closed.
+     *
+     * @param rejected Called with every rejected film and the reason, in file order
+     * @param duplicates Called with every duplicate film and the reason, in file order
+     * @return The number of rejected and duplicate films
+     * @throws SQLException If there is a database error
+     */
+    public int reject(BiConsumer<Film, String> rejected, BiConsumer<Film, String> duplicates) throws SQLException {
+        lockTables();
+        try (Statement stmt = connection.createStatement()) {
+            if (autoCreateGenres) {
+                stmt.executeUpdate(CREATE_GENRES_SQL);
+            }
+            stmt.executeUpdate(RESOLVE_GENRES_SQL);
+            stmt.executeUpdate(MARK_REJECTED_SQL);
+            if (skipDuplicates) {
+                stmt.executeUpdate(MARK_IN_DATABASE_SQL);
+                stmt.executeUpdate(CREATE_FIRST_ROWS_SQL);
+                stmt.executeUpdate(MARK_IN_FILE_SQL);
+                stmt.executeUpdate(DROP_FIRST_ROWS_SQL);
+            }
+
+            int count = 0;
+            try (ResultSet rs = stmt.executeQuery(SELECT_REJECTED_SQL)) {
+                while (rs.next()) {
+                    Film film = new Film(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getString(4));
+                    (rs.getBoolean(6) ? duplicates : rejected).accept(film, rs.getString(5));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Inserts the staged films that were not rejected, with their film_category and film_text rows.
+     *
+     * @param inserted Called with every inserted film, with its film ID set, in file order
+     * @return The number of inserted films
+     * @throws SQLException If there is a database error
+     */
+    public int insert(Consumer<Film> inserted) throws SQLException {
+        lockTables();
+        long lastFilmId;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(LAST_FILM_ID_SQL)) {
+            rs.next();
+            lastFilmId = rs.getLong(1);
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(DROP_FILM_IDS_SQL);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(CREATE_FILM_IDS_SQL)) {
+            stmt.setLong(1, lastFilmId);
+            stmt.executeUpdate();
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(ASSIGN_FILM_IDS_SQL);
+            stmt.executeUpdate(DROP_FILM_IDS_SQL);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_FILMS_SQL)) {
+            FilmDAO.bindDefaults(stmt, 1);
+            stmt.executeUpdate();
+        }
+
+        int count = 0;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(INSERT_FILM_CATEGORIES_SQL);
+            stmt.executeUpdate(INSERT_FILM_TEXT_SQL);
+
+            stmt.setFetchSize(Integer.MIN_VALUE); // stream the rows instead of reading them all at once
+            try (ResultSet rs = stmt.executeQuery(SELECT_INSERTED_SQL)) {
+                while (rs.next()) {
+                    Film film = new Film(rs.getString(2), rs.getString(3), rs.getInt(4), rs.getString(5));
+                    film.setFilmId(rs.getInt(1));
+                    inserted.accept(film);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Locks the tables, unless they already are. LOCK TABLES commits the current transaction.
+     *
+     * @throws SQLException If the tables can not be locked
+     */
+    private void lockTables() throws SQLException {
+        if (!locked) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate(LOCK_TABLES_SQL);
+            }
+            locked = true;
+        }
+    }
+
+    /**
+     * Rolls back whatever the caller has not committed and unlocks the tables, since UNLOCK TABLES would
+     * commit it, then drops the staging table. The connection is left open, since it is owned by the caller.
+     *
+     * @throws SQLException If the tables can not be unlocked or the table can not be dropped
+     */
+    @Override
+    public void close() throws SQLException {
+        if (locked) {
+            locked = false;
+            connection.rollback();
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate(UNLOCK_TABLES_SQL);
+            }
+        }
+        if (staged) {
+            staged = false;
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate(DROP_STAGING_SQL);
+            }
+        }
+    }
+
+    /**
+     * Encodes films as the rows of LOAD DATA: a row number, title, description, release year and genre,
+     * separated by tabs and escaped with backslashes, one film per line.
+     */
+    private static final class TabSeparatedFilms extends InputStream {
+        private final Iterator<Film> films;
+        private final StringBuilder line = new StringBuilder(256);
+        private byte[] buffer = new byte[0];
+        private int position;
+        private long rowNumber;
+
+        /** The exception thrown by the iterator, which the driver only sees as a failed read */
+        private RuntimeException failure;
+
+        private TabSeparatedFilms(Iterator<Film> films) {
+            this.films = films;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? buffer[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Encodes the next film once the current one has been read.
+         *
+         * @return false at the end of the films
+         */
+        private boolean fill() throws IOException {
+            if (position < buffer.length) {
+                return true;
+            }
+            Film film;
+            try {
+                if (!films.hasNext()) {
+                    return false;
+                }
+                film = films.next();
+            } catch (RuntimeException e) {
+                failure = e;
+                throw new IOException(e.getMessage(), e);
+            }
+            line.setLength(0);
+            line.append(++rowNumber).append('\t');
+            appendField(film.getTitle());
+            line.append('\t');
+            appendField(film.getDescription());
+            line.append('\t').append(film.getReleaseYear()).append('\t');
+            appendField(film.getGenre());
+            line.append('\n');
+            buffer = line.toString().getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+
+        private void appendField(String value) {
+            if (value == null) {
+                line.append("\\N");
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\': line.append("\\\\"); break;
+                    case '\t': line.append("\\t"); break;
+                    case '\n': line.append("\\n"); break;
+                    case '\r': line.append("\\r"); break;
+                    case '\0': line.append("\\0"); break;
+                    default: line.append(c);
+                }
+            }
+        }
+    }
+}
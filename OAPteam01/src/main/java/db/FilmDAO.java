@@ -2,14 +2,31 @@ package db;
 
 import film.Film;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Data Access Object for handling film import database operations.
  * Provides methods for inserting films and managing film categories in the database.
  * 
+ * <p>The insert statements are prepared the first time they are needed and then reused for every
+ * following row, so a FilmDAO should be used for a whole import and closed afterwards. Closing the
+ * DAO closes its statements, but not the connection.
+ * 
+ * <p>Every inserted film is also written to film_text, the table behind the full-text search on title
+ * and description. The write is an upsert, so it does not conflict with the insert trigger that the
+ * standard Sakila schema defines for the same purpose.
+ * 
  * @author Erica Laub Varpe
  */
-public class FilmDAO {
+public class FilmDAO implements AutoCloseable {
+	
+	/** Number of rows sent to the database per batch if nothing else is specified */
+	public static final int DEFAULT_BATCH_SIZE = 500;
 	
 	/** SQL query for inserting a new film */
     private static final String INSERT_FILM_SQL = 
@@ -17,74 +34,274 @@ public class FilmDAO {
         "rental_rate, length, replacement_cost, rating, special_features) " +
         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     
-    /** SQL query for retrieving a genre ID by name */
-    private static final String GET_GENRE_ID_SQL = 
-        "SELECT category_id FROM category WHERE name = ?";
-    
     /** SQL query for linking a film to a category */
     private static final String INSERT_FILM_CATEGORY_SQL = 
         "INSERT INTO film_category (film_id, category_id) VALUES (?, ?)";
     
+    /** SQL query for copying the searchable text of a film to film_text */
+    private static final String INSERT_FILM_TEXT_SQL =
+        "INSERT INTO film_text (film_id, title, description) VALUES (?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE title = VALUES(title), description = VALUES(description)";
+    
+    /** SQL query for counting the films */
+    private static final String COUNT_FILMS_SQL = "SELECT COUNT(*) FROM film";
+    
+    /** SQL query for the title and release year of every film */
+    private static final String SELECT_TITLES_SQL = "SELECT title, release_year FROM film";
+    
+    /** Start of the SQL query for films by title, followed by one ? per title and a closing parenthesis */
+    private static final String SELECT_FILMS_BY_TITLE_SQL = "SELECT title, release_year FROM film WHERE title IN (";
+    
     /** Database connection used by this DAO */
     private Connection connection;
     
+    /** Maximum number of rows sent to the database in one batch */
+    private int batchSize;
+    
+    /** Genre names and IDs, loaded from the category table on first use */
+    private final GenreCache genreCache = new GenreCache();
+    
+    /** Reused statement for inserting films, prepared on first use */
+    private PreparedStatement insertFilmStmt;
+    
+    /** Reused statement for linking films to categories, prepared on first use */
+    private PreparedStatement insertFilmCategoryStmt;
+    
+    /** Reused statement for writing films to film_text, prepared on first use */
+    private PreparedStatement insertFilmTextStmt;
+    
+    /** Number of statements this DAO has prepared */
+    private int statementsPrepared;
+    
     /**
-     * Creates a new FilmDAO with the specified database connection.
+     * Creates a new FilmDAO with the specified database connection and the default batch size.
      * 
      * @param connection The database connection to use for operations
      */
     public FilmDAO(Connection connection) {
+        this(connection, DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * Creates a new FilmDAO with the specified database connection and batch size.
+     * 
+     * @param connection The database connection to use for operations
+     * @param batchSize The maximum number of rows sent to the database per batch, must be at least 1
+     */
+    public FilmDAO(Connection connection, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
         this.connection = connection;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Returns the maximum number of rows sent to the database per batch.
+     * 
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
     }
     
     /**
-     * Inserts a new film into the database with default values for some fields.
+     * Returns how many statements this DAO has prepared. Because statements are reused, this stays
+     * constant no matter how many rows are inserted.
+     * 
+     * @return the number of prepared statements
+     */
+    public int getStatementsPrepared() {
+        return statementsPrepared;
+    }
+    
+    /**
+     * Returns the insert film statement, preparing it on first use.
+     */
+    private PreparedStatement insertFilmStatement() throws SQLException {
+        if (insertFilmStmt == null) {
+            insertFilmStmt = connection.prepareStatement(INSERT_FILM_SQL, Statement.RETURN_GENERATED_KEYS);
+            statementsPrepared++;
+        }
+        return insertFilmStmt;
+    }
+    
+    /**
+     * Returns the insert film category statement, preparing it on first use.
+     */
+    private PreparedStatement insertFilmCategoryStatement() throws SQLException {
+        if (insertFilmCategoryStmt == null) {
+            insertFilmCategoryStmt = connection.prepareStatement(INSERT_FILM_CATEGORY_SQL);
+            statementsPrepared++;
+        }
+        return insertFilmCategoryStmt;
+    }
+    
+    /**
+     * Returns the insert film text statement, preparing it on first use.
+     */
+    private PreparedStatement insertFilmTextStatement() throws SQLException {
+        if (insertFilmTextStmt == null) {
+            insertFilmTextStmt = connection.prepareStatement(INSERT_FILM_TEXT_SQL);
+            statementsPrepared++;
+        }
+        return insertFilmTextStmt;
+    }
+    
+    /**
+     * Inserts a new film into the database with default values for some fields,
+     * and adds its title and description to film_text.
      * 
      * @param film The film to insert
      * @return The generated film ID
      * @throws SQLException If there is an error executing the insert
      */
     public int insertFilm(Film film) throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement(INSERT_FILM_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, film.getTitle());
-            stmt.setString(2, film.getDescription());
-            stmt.setInt(3, film.getReleaseYear());
-            stmt.setInt(4, 1); // default language_id
-            stmt.setInt(5, 3); // default rental_duration
-            stmt.setDouble(6, 4.99); // default rental_rate
-            stmt.setInt(7, 120); // default length
-            stmt.setDouble(8, 19.99); // default replacement_cost
-            stmt.setString(9, "PG"); // default rating
-            stmt.setString(10, "Trailers"); // default special_features
-            
-            stmt.executeUpdate();
-            
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
+        PreparedStatement stmt = insertFilmStatement();
+        bindFilm(stmt, film);
+        stmt.executeUpdate();
+        
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
+            if (!rs.next()) {
                 throw new SQLException("Failed to get generated film ID");
             }
+            int filmId = rs.getInt(1);
+            PreparedStatement textStmt = insertFilmTextStatement();
+            bindFilmText(textStmt, filmId, film);
+            textStmt.executeUpdate();
+            return filmId;
+        }
+    }
+    
+    /**
+     * Inserts several films using JDBC batches of at most {@link #getBatchSize()} rows.
+     * With rewriteBatchedStatements enabled on the connection, each batch is sent as a single
+     * multi-row INSERT, and the generated keys of every row are collected per batch.
+     * The films of each batch are then written to film_text in one more batch.
+     * 
+     * <p>The rows of a batch succeed or fail together, so callers that need per-film error
+     * reporting should roll back and retry the batch row by row with {@link #insertFilm(Film)}.
+     * 
+     * @param films The films to insert
+     * @return The generated film IDs, in the same order as the films
+     * @throws SQLException If there is an error executing the batch
+     */
+    public int[] insertFilms(List<Film> films) throws SQLException {
+        int[] filmIds = new int[films.size()];
+        int keyCount = 0;
+        
+        PreparedStatement stmt = insertFilmStatement();
+        PreparedStatement textStmt = insertFilmTextStatement();
+        try {
+            for (int start = 0; start < films.size(); start += batchSize) {
+                int end = Math.min(start + batchSize, films.size());
+                for (Film film : films.subList(start, end)) {
+                    bindFilm(stmt, film);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    while (rs.next() && keyCount < end) {
+                        filmIds[keyCount++] = rs.getInt(1);
+                    }
+                }
+                if (keyCount != end) {
+                    throw new SQLException("Failed to get generated film IDs: expected " + end + ", got " + keyCount);
+                }
+                
+                for (int i = start; i < end; i++) {
+                    bindFilmText(textStmt, filmIds[i], films.get(i));
+                    textStmt.addBatch();
+                }
+                textStmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            stmt.clearBatch();
+            textStmt.clearBatch();
+            throw e;
         }
+        return filmIds;
+    }
+    
+    /**
+     * Binds the values of a film, and the defaults for the columns the import does not provide,
+     * to the insert film statement.
+     * 
+     * @param stmt The prepared insert film statement
+     * @param film The film to bind
+     * @throws SQLException If a parameter can not be set
+     */
+    private void bindFilm(PreparedStatement stmt, Film film) throws SQLException {
+        stmt.setString(1, film.getTitle());
+        stmt.setString(2, film.getDescription());
+        stmt.setInt(3, film.getReleaseYear());
+        bindDefaults(stmt, 4);
     }
     
     /**
-     * Retrieves the category ID for a given genre name.
+     * Binds the defaults for the film columns the import does not provide: language_id, rental_duration,
+     * rental_rate, length, replacement_cost, rating and special_features, in that order.
+     * 
+     * @param stmt The prepared statement
+     * @param index The index of the first of the seven parameters
+     * @throws SQLException If a parameter can not be set
+     */
+    static void bindDefaults(PreparedStatement stmt, int index) throws SQLException {
+        stmt.setInt(index, 1); // default language_id
+        stmt.setInt(index + 1, 3); // default rental_duration
+        stmt.setDouble(index + 2, 4.99); // default rental_rate
+        stmt.setInt(index + 3, 120); // default length
+        stmt.setDouble(index + 4, 19.99); // default replacement_cost
+        stmt.setString(index + 5, "PG"); // default rating
+        stmt.setString(index + 6, "Trailers"); // default special_features
+    }
+    
+    /**
+     * Binds the searchable text of a film to the insert film text statement.
+     * 
+     * @param stmt The prepared insert film text statement
+     * @param filmId The ID of the film
+     * @param film The film to bind
+     * @throws SQLException If a parameter can not be set
+     */
+    private void bindFilmText(PreparedStatement stmt, int filmId, Film film) throws SQLException {
+        stmt.setInt(1, filmId);
+        stmt.setString(2, film.getTitle());
+        stmt.setString(3, film.getDescription());
+    }
+    
+    /**
+     * Returns the genre cache used by this DAO, for example to enable creation of missing genres.
+     * 
+     * @return The genre cache
+     */
+    public GenreCache getGenreCache() {
+        return genreCache;
+    }
+    
+    /**
+     * Retrieves the category ID for a given genre name. The category table is cached the first
+     * time a genre is looked up, so this is normally answered without a database round trip.
      * 
      * @param genreName The name of the genre to look up
      * @return The category ID associated with the genre
      * @throws SQLException If the genre is not found or there is a database error
      */
     public int getGenreId(String genreName) throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement(GET_GENRE_ID_SQL)) {
-            stmt.setString(1, genreName);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("category_id");
-                }
-                throw new SQLException("Genre not found: " + genreName);
-            }
-        }
+        return genreCache.getGenreId(connection, genreName);
+    }
+    
+    /**
+     * Retrieves the category IDs for several genre names at once.
+     * 
+     * @param genreNames The names of the genres to look up
+     * @return A case-insensitive map from genre name to category ID, leaving out genres that were not found
+     * @throws SQLException If there is a database error
+     * @see GenreCache#getGenreIds(Connection, Collection)
+     */
+    public Map<String, Integer> getGenreIds(Collection<String> genreNames) throws SQLException {
+        return genreCache.getGenreIds(connection, genreNames);
     }
     
     /**
@@ -95,10 +312,125 @@ public class FilmDAO {
      * @throws SQLException If there is an error creating the association
      */
     public void insertFilmCategory(int filmId, int categoryId) throws SQLException {
-        try (PreparedStatement stmt = connection.prepareStatement(INSERT_FILM_CATEGORY_SQL)) {
-            stmt.setInt(1, filmId);
-            stmt.setInt(2, categoryId);
-            stmt.executeUpdate();
+        PreparedStatement stmt = insertFilmCategoryStatement();
+        stmt.setInt(1, filmId);
+        stmt.setInt(2, categoryId);
+        stmt.executeUpdate();
+    }
+    
+    /**
+     * Associates several films with their categories using JDBC batches.
+     * 
+     * @param filmIds The IDs of the films
+     * @param categoryIds The category ID of each film, in the same order as filmIds
+     * @throws SQLException If there is an error executing the batch
+     */
+    public void insertFilmCategories(int[] filmIds, int[] categoryIds) throws SQLException {
+        if (filmIds.length != categoryIds.length) {
+            throw new IllegalArgumentException("Got " + filmIds.length + " films but " + categoryIds.length + " categories");
+        }
+        PreparedStatement stmt = insertFilmCategoryStatement();
+        try {
+            for (int i = 0; i < filmIds.length; i++) {
+                stmt.setInt(1, filmIds[i]);
+                stmt.setInt(2, categoryIds[i]);
+                stmt.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            stmt.clearBatch();
+            throw e;
+        }
+    }
+    
+    /**
+     * Counts the films in the database.
+     * 
+     * @return The number of films
+     * @throws SQLException If there is a database error
+     */
+    public int countFilms() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(COUNT_FILMS_SQL)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+    
+    /**
+     * Reads the title and release year of every film in the database. The rows are streamed from the
+     * server one at a time, so the connection can not be used for anything else until this returns.
+     * 
+     * @param consumer Called with the title and release year of every film
+     * @throws SQLException If there is a database error
+     */
+    public void forEachTitle(ObjIntConsumer<String> consumer) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(SELECT_TITLES_SQL)) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Finds the films with any of the given titles, compared by the collation of the title column, so
+     * normally without regard to case. At most {@link #getBatchSize()} titles are looked up per query.
+     * 
+     * @param titles The titles to look for
+     * @return The films found, with only their title and release year set
+     * @throws SQLException If there is a database error
+     */
+    public List<Film> findFilmsByTitle(Collection<String> titles) throws SQLException {
+        List<String> titleList = new ArrayList<>(titles);
+        List<Film> films = new ArrayList<>();
+        for (int start = 0; start < titleList.size(); start += batchSize) {
+            List<String> batch = titleList.subList(start, Math.min(start + batchSize, titleList.size()));
+            String sql = SELECT_FILMS_BY_TITLE_SQL + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    stmt.setString(i + 1, batch.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        films.add(new Film(rs.getString(1), null, rs.getInt(2), Collections.<String>emptyList()));
+                    }
+                }
+            }
+        }
+        return films;
+    }
+    
+    /**
+     * Closes the statements prepared by this DAO. The connection is left open, since it is
+     * owned by the caller.
+     * 
+     * @throws SQLException If a statement can not be closed
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (insertFilmStmt != null) {
+                insertFilmStmt.close();
+            }
+        } finally {
+            insertFilmStmt = null;
+            try {
+                if (insertFilmCategoryStmt != null) {
+                    insertFilmCategoryStmt.close();
+                }
+            } finally {
+                insertFilmCategoryStmt = null;
+                if (insertFilmTextStmt != null) {
+                    insertFilmTextStmt.close();
+                }
+                insertFilmTextStmt = null;
+            }
         }
     }
 }
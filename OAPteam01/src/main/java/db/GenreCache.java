@@ -0,0 +1,208 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Cache of the category table, mapping genre names to category IDs.
+ * The whole table is loaded in one query the first time a genre is looked up, so resolving the
+ * genre of an imported film is a map lookup instead of a database round trip.
+ *
+ * <p>Names are matched case-insensitively, like the default collation of the category table.
+ * When a name is not found, the cache is reloaded once in case the genre was added since the last load.
+ * If auto-create is enabled, genres that are still missing are inserted into the category table.
+ * Otherwise the names that are still missing are remembered, so that a file with many rows of an unknown
+ * genre reloads the table once instead of once per batch. A cache normally lives for one import, so a
+ * genre that someone else adds during an import is found by the next import.
+ *
+ * <p>A cache can be shared by several threads. Lookups of known genres only read the cached map; reloads
+ * and inserts run one at a time, so two threads never create the same genre.
+ *
+ * @author Erica Laub Varpe
+ */
+public class GenreCache {
+
+	/** SQL query for loading all genres */
+    private static final String SELECT_ALL_GENRES_SQL =
+        "SELECT category_id, name FROM category";
+
+    /** SQL query for creating a new genre */
+    private static final String INSERT_GENRE_SQL =
+        "INSERT INTO category (name) VALUES (?)";
+
+    /** Immutable, case-insensitive map from genre name to category ID, or null until loaded */
+    private volatile Map<String, Integer> genres;
+
+    /** Immutable, case-insensitive set of the names that were still missing after the last load */
+    private volatile Set<String> missingGenres = Collections.emptySet();
+
+    /** Whether genres that do not exist in the database are created on lookup */
+    private boolean autoCreate;
+
+    /**
+     * Returns whether missing genres are created in the category table.
+     *
+     * @return true if missing genres are created, false if they are reported as not found
+     */
+    public boolean isAutoCreate() {
+        return autoCreate;
+    }
+
+    /**
+     * Sets whether missing genres are created in the category table.
+     *
+     * @param autoCreate true to create missing genres, false to report them as not found
+     */
+    public synchronized void setAutoCreate(boolean autoCreate) {
+        this.autoCreate = autoCreate;
+        missingGenres = Collections.emptySet(); // names known to be missing may now be created
+    }
+
+    /**
+     * Loads, or reloads, every genre from the category table, and forgets which names were missing.
+     *
+     * @param connection The database connection to load the genres with
+     * @throws SQLException If the category table can not be read
+     */
+    public void load(Connection connection) throws SQLException {
+        Map<String, Integer> loaded = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_ALL_GENRES_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                loaded.put(rs.getString("name"), rs.getInt("category_id"));
+            }
+        }
+        genres = Collections.unmodifiableMap(loaded);
+        missingGenres = Collections.emptySet();
+    }
+
+    /**
+     * Returns all cached genres, loading them first if needed.
+     *
+     * @param connection The database connection to load the genres with
+     * @return An immutable, case-insensitive map from genre name to category ID
+     * @throws SQLException If the category table can not be read
+     */
+    public Map<String, Integer> getGenres(Connection connection) throws SQLException {
+        if (genres == null) {
+            load(connection);
+        }
+        return genres;
+    }
+
+    /**
+     * Retrieves the category ID for a given genre name.
+     *
+     * @param connection The database connection to use if the cache has to be loaded
+     * @param genreName The name of the genre to look up
+     * @return The category ID associated with the genre
+     * @throws SQLException If the genre is not found and can not be created, or there is a database error
+     */
+    public int getGenreId(Connection connection, String genreName) throws SQLException {
+        Integer genreId = getGenreIds(connection, Collections.singleton(genreName)).get(genreName);
+        if (genreId == null) {
+            throw new SQLException("Genre not found: " + genreName);
+        }
+        return genreId;
+    }
+
+    /**
+     * Retrieves the category IDs for several genre names at once. The cache is reloaded at most once,
+     * and with auto-create enabled all genres that are still missing are inserted in a single batch.
+     * Names that were already missing after an earlier reload do not cause another one.
+     *
+     * @param connection The database connection to use if the cache has to be loaded or genres created
+     * @param genreNames The names of the genres to look up
+     * @return A case-insensitive map from genre name to category ID. Genres that were not found
+     *         and could not be created are left out.
+     * @throws SQLException If there is a database error
+     */
+    public Map<String, Integer> getGenreIds(Connection connection, Collection<String> genreNames) throws SQLException {
+        Set<String> missing = findMissing(getGenres(connection), genreNames);
+        missing.removeIf(missingGenres::contains);
+        if (!missing.isEmpty()) {
+            synchronized (this) {
+                missing = findMissing(genres, missing); // another thread may have reloaded while this one waited
+                missing.removeIf(missingGenres::contains);
+                if (!missing.isEmpty()) {
+                    Set<String> knownMissing = missingGenres;
+                    load(connection);
+                    missing = findMissing(genres, missing);
+                    if (!missing.isEmpty() && autoCreate) {
+                        createGenres(connection, missing);
+                        missing = findMissing(genres, missing);
+                    }
+                    Set<String> stillMissing = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                    stillMissing.addAll(findMissing(genres, knownMissing));
+                    stillMissing.addAll(missing);
+                    missingGenres = Collections.unmodifiableSet(stillMissing);
+                }
+            }
+        }
+
+        Map<String, Integer> current = genres;
+        Map<String, Integer> genreIds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : genreNames) {
+            Integer genreId = name == null ? null : current.get(name);
+            if (genreId != null) {
+                genreIds.put(name, genreId);
+            }
+        }
+        return genreIds;
+    }
+
+    /**
+     * Returns the names that are not in the given genre map.
+     */
+    private Set<String> findMissing(Map<String, Integer> known, Collection<String> genreNames) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String name : genreNames) {
+            if (name != null && !known.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Creates the given genres in one batched statement and adds them to the cache.
+     * Blank names are never created.
+     */
+    private void createGenres(Connection connection, Set<String> names) throws SQLException {
+        List<String> created = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_GENRE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (String name : names) {
+                if (!name.trim().isEmpty()) {
+                    stmt.setString(1, name.trim());
+                    stmt.addBatch();
+                    created.add(name.trim());
+                }
+            }
+            if (created.isEmpty()) {
+                return;
+            }
+            stmt.executeBatch();
+
+            Map<String, Integer> updated = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            updated.putAll(genres);
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                for (int i = 0; i < created.size() && rs.next(); i++) {
+                    updated.put(created.get(i), rs.getInt(1));
+                }
+            }
+            genres = Collections.unmodifiableMap(updated);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package db;
+
+/**
+ * An immutable snapshot of a connection pool's state and wait statistics.
+ *
+ * @author Trudy Ann Roberts
+ */
+public class PoolStats {
+
+    private final int active;
+    private final int idle;
+    private final int total;
+    private final int maxSize;
+    private final long borrowCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long borrowTimeouts;
+
+    /**
+     * Creates a new snapshot of pool statistics.
+     *
+     * @param active 			number of connections currently borrowed
+     * @param idle 				number of open connections waiting in the pool
+     * @param total 			number of open physical connections
+     * @param maxSize 			maximum number of connections that can be borrowed at the same time
+     * @param borrowCount 		number of successful borrows since the pool was created
+     * @param totalWaitNanos 	time callers have spent waiting for a free connection, in nanoseconds
+     * @param maxWaitNanos 		the longest a single caller has waited, in nanoseconds
+     * @param borrowTimeouts 	number of borrows that gave up because no connection became available
+     */
+    public PoolStats(int active, int idle, int total, int maxSize, long borrowCount,
+                     long totalWaitNanos, long maxWaitNanos, long borrowTimeouts) {
+        this.active = active;
+        this.idle = idle;
+        this.total = total;
+        this.maxSize = maxSize;
+        this.borrowCount = borrowCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.borrowTimeouts = borrowTimeouts;
+    }
+
+    /** @return number of connections currently borrowed */
+    public int getActive() {
+        return active;
+    }
+
+    /** @return number of open connections waiting in the pool */
+    public int getIdle() {
+        return idle;
+    }
+
+    /** @return number of open physical connections */
+    public int getTotal() {
+        return total;
+    }
+
+    /** @return maximum number of connections that can be borrowed at the same time */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return number of successful borrows since the pool was created */
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    /** @return total time callers have spent waiting for a connection, in milliseconds */
+    public double getTotalWaitMillis() {
+        return totalWaitNanos / 1_000_000.0;
+    }
+
+    /** @return average time a borrow waited for a connection, in milliseconds */
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0 : getTotalWaitMillis() / borrowCount;
+    }
+
+    /** @return the longest a single borrow has waited for a connection, in milliseconds */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    /** @return number of borrows that timed out waiting for a connection */
+    public long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, total=%d/%d, borrows=%d, avgWait=%.2f ms, maxWait=%.2f ms, timeouts=%d",
+                active, idle, total, maxSize, borrowCount, getAverageWaitMillis(), getMaxWaitMillis(), borrowTimeouts);
+    }
+}
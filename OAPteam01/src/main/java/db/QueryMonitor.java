@@ -0,0 +1,262 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects timing statistics for every SQL statement run through DatabaseConnection.
+ * Connections are wrapped in a proxy that times each execute call of the statements created from them,
+ * and counts the rows read from their result sets. Statistics are kept per SQL template, which for
+ * prepared statements is the SQL string with its ? placeholders.
+ *
+ * <p>Executions slower than the slow query threshold are written to the slow query log (standard error),
+ * together with their bind parameters and the method that ran the query. The threshold defaults to
+ * 500 ms and can be changed with the db.slowQueryMillis system property or at runtime.
+ *
+ * @author Trudy Ann Roberts
+ */
+public final class QueryMonitor {
+
+    /** Number of recent executions per template kept for the percentile calculations. */
+    private static final int SAMPLE_SIZE = 1024;
+
+    /** Bind parameter values longer than this are shortened in the slow query log. */
+    private static final int MAX_LOGGED_PARAMETER_LENGTH = 100;
+
+    private static final Map<String, Collector> COLLECTORS = new ConcurrentHashMap<>();
+
+    private static volatile long slowQueryNanos =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("db.slowQueryMillis", 500));
+
+    private QueryMonitor() {
+    }
+
+    /**
+     * Wraps a connection so that all statements created from it are timed.
+     *
+     * @param connection the connection to instrument
+     * @return an instrumented connection that forwards every call to the given connection
+     */
+    public static Connection wrap(Connection connection) {
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Returns the statistics collected so far, the templates with the highest total time first.
+     *
+     * @return a snapshot of the statistics of every SQL template
+     */
+    public static List<QueryStats> getQueryStats() {
+        List<QueryStats> stats = new ArrayList<>();
+        for (Map.Entry<String, Collector> entry : COLLECTORS.entrySet()) {
+            stats.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        stats.sort(Comparator.comparingDouble(QueryStats::getTotalMillis).reversed());
+        return stats;
+    }
+
+    /**
+     * Discards all collected statistics.
+     */
+    public static void reset() {
+        COLLECTORS.clear();
+    }
+
+    /**
+     * Returns the threshold above which executions are written to the slow query log.
+     *
+     * @return the threshold in milliseconds
+     */
+    public static long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    /**
+     * Sets the threshold above which executions are written to the slow query log.
+     *
+     * @param millis the threshold in milliseconds
+     */
+    public static void setSlowQueryThresholdMillis(long millis) {
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Records one execution of a statement, and logs it if it was slow.
+     */
+    private static void record(Collector collector, String sql, long nanos, Map<Integer, Object> parameters) {
+        collector.record(nanos);
+        if (nanos >= slowQueryNanos) {
+            System.err.printf("Slow query (%.1f ms) in %s: %s parameters=%s%n",
+                    nanos / 1_000_000.0, findCaller(), sql, formatParameters(parameters));
+        }
+    }
+
+    private static Collector collector(String sql) {
+        return COLLECTORS.computeIfAbsent(sql.trim(), key -> new Collector());
+    }
+
+    /**
+     * Finds the first method on the call stack outside of JDBC, the proxies and this class.
+     */
+    private static String findCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith(QueryMonitor.class.getName()) || className.startsWith(ConnectionPool.class.getName())
+                    || className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("sun.")
+                    || className.startsWith("jdk.") || className.startsWith("com.sun.") || className.contains("$Proxy")) {
+                continue;
+            }
+            return className + "." + element.getMethodName() + ":" + element.getLineNumber();
+        }
+        return "unknown";
+    }
+
+    private static String formatParameters(Map<Integer, Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return "[]";
+        }
+        List<String> values = new ArrayList<>();
+        for (Object value : parameters.values()) {
+            String text = String.valueOf(value);
+            if (text.length() > MAX_LOGGED_PARAMETER_LENGTH) {
+                text = text.substring(0, MAX_LOGGED_PARAMETER_LENGTH) + "...";
+            }
+            values.add(value instanceof String ? "'" + text + "'" : text);
+        }
+        return values.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(QueryMonitor.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements created by a connection.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryMonitor.invoke(target, method, args);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return proxy(method.getReturnType(), new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times the execute calls of a statement and remembers its bind parameters.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String template;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private Collector lastCollector;
+
+        private StatementHandler(Statement target, String template) {
+            this.target = target;
+            this.template = template;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : template;
+                if (sql == null) {
+                    return QueryMonitor.invoke(target, method, args);
+                }
+                Collector collector = collector(sql);
+                lastCollector = collector;
+                long start = System.nanoTime();
+                Object result = QueryMonitor.invoke(target, method, args);
+                record(collector, sql, System.nanoTime() - start, template != null ? parameters : null);
+                return result instanceof ResultSet ? countRows((ResultSet) result, collector) : result;
+            }
+            if (name.equals("getResultSet") && lastCollector != null) {
+                Object result = QueryMonitor.invoke(target, method, args);
+                return result instanceof ResultSet ? countRows((ResultSet) result, lastCollector) : result;
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            }
+            return QueryMonitor.invoke(target, method, args);
+        }
+
+        private ResultSet countRows(ResultSet resultSet, Collector collector) {
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                Object result = QueryMonitor.invoke(resultSet, method, args);
+                if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                    collector.rows.incrementAndGet();
+                }
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Accumulates the executions of one SQL template. Percentiles are calculated from the most
+     * recent executions, so they follow changes in behaviour instead of averaging over the whole run.
+     */
+    private static final class Collector {
+        private final AtomicLong rows = new AtomicLong();
+        private final long[] samples = new long[SAMPLE_SIZE];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        private synchronized void record(long nanos) {
+            samples[(int) (count % SAMPLE_SIZE)] = nanos;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        private synchronized QueryStats snapshot(String sql) {
+            long[] recent = Arrays.copyOf(samples, (int) Math.min(count, SAMPLE_SIZE));
+            Arrays.sort(recent);
+            return new QueryStats(sql, count, totalNanos, percentile(recent, 0.50), percentile(recent, 0.99),
+                    maxNanos, rows.get());
+        }
+
+        private static long percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package db;
+
+/**
+ * An immutable snapshot of the statistics collected for one SQL statement template.
+ *
+ * @author Trudy Ann Roberts
+ */
+public class QueryStats {
+
+    private final String sql;
+    private final long count;
+    private final long totalNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final long rowsReturned;
+
+    /**
+     * Creates a new snapshot of query statistics.
+     *
+     * @param sql 			the SQL template, with ? placeholders for parameters
+     * @param count 		number of times the statement was executed
+     * @param totalNanos 	total execution time, in nanoseconds
+     * @param p50Nanos 		median execution time of the recent executions, in nanoseconds
+     * @param p99Nanos 		99th percentile execution time of the recent executions, in nanoseconds
+     * @param maxNanos 		the slowest execution, in nanoseconds
+     * @param rowsReturned 	number of rows read from the result sets of the statement
+     */
+    public QueryStats(String sql, long count, long totalNanos, long p50Nanos, long p99Nanos,
+                      long maxNanos, long rowsReturned) {
+        this.sql = sql;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+        this.rowsReturned = rowsReturned;
+    }
+
+    /** @return the SQL template, with ? placeholders for parameters */
+    public String getSql() {
+        return sql;
+    }
+
+    /** @return number of times the statement was executed */
+    public long getCount() {
+        return count;
+    }
+
+    /** @return total execution time, in milliseconds */
+    public double getTotalMillis() {
+        return totalNanos / 1_000_000.0;
+    }
+
+    /** @return average execution time, in milliseconds */
+    public double getAverageMillis() {
+        return count == 0 ? 0 : getTotalMillis() / count;
+    }
+
+    /** @return median execution time of the recent executions, in milliseconds */
+    public double getP50Millis() {
+        return p50Nanos / 1_000_000.0;
+    }
+
+    /** @return 99th percentile execution time of the recent executions, in milliseconds */
+    public double getP99Millis() {
+        return p99Nanos / 1_000_000.0;
+    }
+
+    /** @return the slowest execution, in milliseconds */
+    public double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /** @return number of rows read from the result sets of the statement */
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, total=%.1f ms, p50=%.2f ms, p99=%.2f ms, max=%.2f ms, rows=%d: %s",
+                count, getTotalMillis(), getP50Millis(), getP99Millis(), getMaxMillis(), rowsReturned, sql);
+    }
+}
@@ -0,0 +1,126 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads read-only work over a set of read replicas.
+ * Replicas are used in round-robin order. A replica that can not be connected to is marked as down and
+ * skipped until its retry time has passed, after which the next read tries it again. A replica whose pool
+ * has no free connection within the borrow timeout is busy, not down: the read moves on to the next replica,
+ * and the busy one stays in the rotation.
+ * If no replica is healthy and free, or none are configured, the router returns null so the caller can fall
+ * back to the primary database.
+ *
+ * @author Trudy Ann Roberts
+ */
+public class ReplicaRouter {
+
+    private final List<Replica> replicas;
+    private final long retryAfterMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Creates a router over the given replica pools.
+     *
+     * @param replicaPools 		a connection pool per replica, may be empty
+     * @param retryAfterMillis 	how long a failed replica is skipped before it is tried again
+     */
+    public ReplicaRouter(List<ConnectionPool> replicaPools, long retryAfterMillis) {
+        List<Replica> list = new ArrayList<>();
+        for (ConnectionPool pool : replicaPools) {
+            list.add(new Replica(pool));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns a connection to the next healthy replica.
+     *
+     * @return a pooled replica connection, or null if there is no healthy replica with a free connection
+     */
+    public Connection getConnection() {
+        int count = replicas.size();
+        if (count == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (replica.downUntil > now) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replica.downUntil = 0;
+                return connection;
+            } catch (SQLTransientConnectionException e) {
+                System.err.println("Read replica busy, trying the next one: " + e.getMessage());
+            } catch (SQLException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return null; // interrupted while waiting for the pool, the replica is not at fault
+                }
+                replica.downUntil = now + retryAfterMillis;
+                System.err.println("Read replica unavailable, skipping it for " + retryAfterMillis + " ms: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of configured replicas.
+     *
+     * @return the number of replicas
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Returns the number of replicas that are not currently marked as down.
+     *
+     * @return the number of healthy replicas
+     */
+    public int getHealthyReplicaCount() {
+        long now = System.currentTimeMillis();
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.downUntil <= now) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Returns the pool statistics of every replica, in configuration order.
+     *
+     * @return a list of pool statistics
+     */
+    public List<PoolStats> getPoolStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            stats.add(replica.pool.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * A replica pool and its health state.
+     */
+    private static final class Replica {
+        private final ConnectionPool pool;
+        private volatile long downUntil;
+
+        private Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+    }
+}
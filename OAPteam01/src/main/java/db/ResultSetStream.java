@@ -0,0 +1,166 @@
+package db;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns an open ResultSet into a Stream that reads one row at a time.
+ * The result set, its statement and its connection are closed when the stream is closed, when the last
+ * row has been read, or when reading a row fails. A failed read is thrown as an {@link UncheckedSQLException},
+ * so that it can not be mistaken for the end of the rows. If a caller abandons the stream without doing either,
+ * the resources are closed once the stream has been garbage collected, so the connection still finds
+ * its way back to the pool.
+ *
+ * @author Trudy Ann Roberts
+ */
+public final class ResultSetStream {
+
+    /**
+     * Maps the current row of a result set to an object.
+     *
+     * @param <T> the type of object created from each row
+     */
+    public interface RowMapper<T> {
+        /**
+         * Maps the current row.
+         *
+         * @param resultSet the result set, positioned on the row to map
+         * @return the object created from the row
+         * @throws SQLException if a column can not be read
+         */
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    private static final ReferenceQueue<Object> ABANDONED = new ReferenceQueue<>();
+
+    /** Keeps the phantom references reachable until their stream is closed or collected. */
+    private static final Set<Resources> OPEN = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<Resources, Boolean>()));
+
+    static {
+        Thread reaper = new Thread(ResultSetStream::closeAbandoned, "result-set-stream-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private ResultSetStream() {
+    }
+
+    /**
+     * Creates a stream over the rows of a result set. The stream takes ownership of the given resources.
+     *
+     * @param <T>			the type of object created from each row
+     * @param connection	the connection the query runs on
+     * @param statement		the statement that produced the result set
+     * @param resultSet		the result set to read
+     * @param mapper		maps each row to an object
+     * @return a sequential stream of mapped rows, which should be closed by the caller
+     */
+    public static <T> Stream<T> stream(Connection connection, Statement statement, ResultSet resultSet,
+                                       RowMapper<T> mapper) {
+        RowSpliterator<T> spliterator = new RowSpliterator<>(resultSet, mapper);
+        Resources resources = new Resources(spliterator, connection, statement, resultSet);
+        spliterator.resources = resources;
+        OPEN.add(resources);
+        return StreamSupport.stream(spliterator, false).onClose(resources::close);
+    }
+
+    /**
+     * Closes the resources of streams that were garbage collected without being closed.
+     */
+    private static void closeAbandoned() {
+        while (true) {
+            try {
+                Reference<?> reference = ABANDONED.remove();
+                ((Resources) reference).close();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads rows until the result set is exhausted.
+     */
+    private static final class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ResultSet resultSet;
+        private final RowMapper<T> mapper;
+        private Resources resources;
+
+        private RowSpliterator(ResultSet resultSet, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.resultSet = resultSet;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (resources.closed) {
+                return false;
+            }
+            try {
+                if (!resultSet.next()) {
+                    resources.close();
+                    return false;
+                }
+                action.accept(mapper.map(resultSet));
+                return true;
+            } catch (SQLException e) {
+                resources.close();
+                throw new UncheckedSQLException("Error reading rows: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * The JDBC resources behind a stream. Doubles as the phantom reference that notices when
+     * the stream has been abandoned, so it must not refer back to the spliterator itself.
+     */
+    private static final class Resources extends PhantomReference<Object> {
+        private final Connection connection;
+        private final Statement statement;
+        private final ResultSet resultSet;
+        private volatile boolean closed;
+
+        private Resources(Object owner, Connection connection, Statement statement, ResultSet resultSet) {
+            super(owner, ABANDONED);
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            OPEN.remove(this);
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            closeQuietly(connection);
+        }
+
+        private static void closeQuietly(AutoCloseable resource) {
+            try {
+                if (resource != null) {
+                    resource.close();
+                }
+            } catch (Exception e) {
+                System.err.println("Error closing streamed result: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package db;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps an SQLException where a checked exception can not be thrown, such as while a Stream reads the rows
+ * of a query, like UncheckedIOException does for an IOException.
+ *
+ * @author Trudy Ann Roberts
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an exception that wraps an SQLException.
+     *
+     * @param message the detail message
+     * @param cause the SQLException that was thrown
+     */
+    public UncheckedSQLException(String message, SQLException cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Returns the SQLException this exception wraps.
+     *
+     * @return the cause
+     */
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,105 @@
+package film;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking film lookups in the background and exposes them as CompletableFutures.
+ * 
+ * <p>Tasks run on virtual threads when the Java runtime supports them (Java 21 and later), so a blocked
+ * JDBC call does not hold on to a platform thread. On older runtimes a pool of daemon threads is used instead.
+ * The number of lookups running at the same time is limited, so a burst of requests can not use up
+ * every connection in the pool; tasks above the limit wait for a free slot.
+ * 
+ * @author Erica Laub Varpe
+ */
+public class AsyncFilmExecutor {
+	
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * Creates a new executor.
+     * 
+     * @param maxConcurrency	the maximum number of lookups that run at the same time, must be at least 1
+     */
+    public AsyncFilmExecutor(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.executor = createExecutor();
+    }
+
+    /**
+     * Returns the maximum number of lookups that run at the same time.
+     * 
+     * @return the concurrency limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Runs a task in the background.
+     * 
+     * @param <T>	the result type of the task
+     * @param task	the blocking task to run
+     * @return a future that is completed with the result of the task. Cancelling the future
+     *         interrupts the task, or keeps it from starting if it is still waiting.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                future.cancel(false);
+                return;
+            }
+            try {
+                if (!future.isDone()) {
+                    future.complete(task.get());
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops accepting new tasks and interrupts the running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Creates a virtual thread per task executor if the runtime has one, otherwise a cached pool of daemon threads.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "film-lookup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
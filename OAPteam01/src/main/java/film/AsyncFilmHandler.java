@@ -0,0 +1,47 @@
+package film;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link FilmHandler}.
+ * Each method starts the lookup in the background and returns immediately, so callers such as the GUI
+ * can run several independent lookups at the same time without blocking their own thread.
+ * 
+ * <p>Cancelling a returned future stops the lookup if it has not started yet, and interrupts it if it has.
+ * 
+ * @author Erica Laub Varpe
+ */
+public interface AsyncFilmHandler {
+
+    /**
+     * Retrieves all films in the background.
+     *
+     * @return a future completed with a list of all films, or an empty list if no films are available
+     */
+    CompletableFuture<List<Film>> getAllFilmsAsync();
+
+    /**
+     * Searches for films by partial title in the background.
+     *
+     * @param partialTitle	 a substring of the film title to search for; it is not case sensitive.
+     * @return a future completed with the films whose titles contain the search term
+     */
+    CompletableFuture<List<Film>> getFilmByTitleAsync(String partialTitle);
+
+    /**
+     * Retrieves the films of a genre in the background.
+     *
+     * @param genre 	the genre by which to filter films; it is not case sensitive.
+     * @return a future completed with the films of the genre
+     */
+    CompletableFuture<List<Film>> getFilmByGenreAsync(String genre);
+
+    /**
+     * Retrieves the films released in a given year in the background.
+     *
+     * @param releaseYear 	the year to filter films by, in YYYY format
+     * @return a future completed with the films released in that year
+     */
+    CompletableFuture<List<Film>> getFilmByReleaseYearAsync(int releaseYear);
+}
@@ -0,0 +1,96 @@
+package film;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings: a set that may answer that it contains a key it was never given, but never
+ * answers that it does not contain a key it was given. It takes about ten bits per key at a false positive
+ * rate of 1%, however long the keys are.
+ *
+ * <p>Each key sets a few bits chosen by one 64-bit hash of the key, split in two halves that are combined
+ * into the bit positions. Keys can be added and looked up from several threads at once.
+ *
+ * @author Erica Laub Varpe
+ */
+class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	/**
+	 * Creates an empty filter sized for the given number of keys.
+	 *
+	 * @param expectedKeys 			the number of keys the filter is expected to hold
+	 * @param falsePositiveRate 	the share of absent keys that may be reported as present once the filter
+	 *                          	holds the expected number of keys, between 0 and 1
+	 */
+	BloomFilter(long expectedKeys, double falsePositiveRate) {
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+		long keys = Math.max(1, expectedKeys);
+		long optimalBits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (optimalBits + 63) / 64));
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = 64L * words;
+		this.hashCount = (int) Math.max(1, Math.round((double) bitCount / keys * Math.log(2)));
+	}
+
+	/**
+	 * Adds a key.
+	 *
+	 * @param key 	the key to add
+	 */
+	void put(String key) {
+		long hash = hash(key);
+		long h1 = hash & 0xFFFFFFFFL;
+		long h2 = hash >>> 32;
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				// another thread changed the word, try again
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a key may have been added.
+	 *
+	 * @param key 	the key to look up
+	 * @return false if the key was certainly never added, true if it probably was
+	 */
+	boolean mightContain(String key) {
+		long hash = hash(key);
+		long h1 = hash & 0xFFFFFFFFL;
+		long h2 = hash >>> 32;
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the characters of a key with 64-bit FNV-1a, followed by the final mix of MurmurHash3 so
+	 * that both halves of the hash depend on every character.
+	 */
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
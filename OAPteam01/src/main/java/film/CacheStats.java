@@ -0,0 +1,86 @@
+package film;
+
+/**
+ * An immutable snapshot of the state and hit statistics of a {@link CachingFilmHandler}.
+ *
+ * @author Erica Laub Varpe
+ */
+public class CacheStats {
+
+    private final int entries;
+    private final long weight;
+    private final long maxWeight;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long expiredCount;
+
+    /**
+     * Creates a new snapshot of cache statistics.
+     *
+     * @param entries 		number of cached results
+     * @param weight 		number of films in the cached results
+     * @param maxWeight 	the most films the cache holds before it evicts results
+     * @param hitCount 		number of searches answered from the cache
+     * @param missCount 	number of searches passed on to the underlying FilmHandler
+     * @param evictionCount number of results evicted because the cache was full
+     * @param expiredCount 	number of results dropped because they were older than the time to live
+     */
+    public CacheStats(int entries, long weight, long maxWeight, long hitCount, long missCount,
+                      long evictionCount, long expiredCount) {
+        this.entries = entries;
+        this.weight = weight;
+        this.maxWeight = maxWeight;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.expiredCount = expiredCount;
+    }
+
+    /** @return number of cached results */
+    public int getEntries() {
+        return entries;
+    }
+
+    /** @return number of films in the cached results */
+    public long getWeight() {
+        return weight;
+    }
+
+    /** @return the most films the cache holds before it evicts results */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /** @return number of searches answered from the cache */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /** @return number of searches passed on to the underlying FilmHandler */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /** @return share of searches answered from the cache, between 0 and 1 */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    /** @return number of results evicted because the cache was full */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** @return number of results dropped because they were older than the time to live */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("entries=%d, films=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expired=%d",
+                entries, weight, maxWeight, hitCount, missCount, getHitRate() * 100, evictionCount, expiredCount);
+    }
+}
@@ -0,0 +1,288 @@
+package film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * A FilmHandler that remembers the results of another FilmHandler, so repeated searches do not run the
+ * same SQL again. Results are cached per search type and parameters, and for paged searches also per
+ * cursor and page size.
+ *
+ * <p>The cache is bounded by the total number of films in the cached results rather than by the number
+ * of results, since one "all films" result can be as large as thousands of genre searches. When the
+ * bound is exceeded, the least recently used results are evicted. Results also expire after a time to
+ * live, so changes made to the database by other applications show up eventually.
+ *
+ * <p>Registered as a {@link FilmImportListener}, the cache is emptied whenever an import is committed.
+ * A search that was already running when the cache was emptied does not store its result, since it may
+ * have been read before the import.
+ *
+ * <p>{@link #streamAllFilms()} and {@link #streamFilmSummaries()} are not cached, because they exist to avoid
+ * holding the whole catalog in memory.
+ * Neither is {@link #findFilms(FilmSearchCriteria)}, since there are too many combinations of criteria for
+ * repeated searches to be likely, and the criteria can be changed after the search.
+ *
+ * @author Erica Laub Varpe
+ */
+public class CachingFilmHandler implements FilmHandler, FilmImportListener {
+
+	/** The FilmHandler whose results are cached */
+	private final FilmHandler delegate;
+
+	/** The most films the cached results may hold together */
+	private final long maxWeight;
+
+	/** How long a result is used before it is fetched again, in milliseconds */
+	private final long timeToLiveMillis;
+
+	/** Cached results in access order, least recently used first. Guarded by this. */
+	private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long weight;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long expiredCount;
+
+	/** Incremented when the cache is emptied, so searches running at that moment do not store stale results */
+	private long generation;
+
+	/**
+	 * Creates a cache in front of the given FilmHandler, with the size and time to live given by the
+	 * film.cache.maxFilms (default 50000) and film.cache.ttlMillis (default 60000) system properties.
+	 *
+	 * @param delegate 	the FilmHandler whose results are cached
+	 */
+	public CachingFilmHandler(FilmHandler delegate) {
+		this(delegate, Long.getLong("film.cache.maxFilms", 50_000), Long.getLong("film.cache.ttlMillis", 60_000));
+	}
+
+	/**
+	 * Creates a cache in front of the given FilmHandler.
+	 *
+	 * @param delegate 			the FilmHandler whose results are cached
+	 * @param maxWeight 		the most films the cached results may hold together
+	 * @param timeToLiveMillis 	how long a result is used before it is fetched again, in milliseconds
+	 */
+	public CachingFilmHandler(FilmHandler delegate, long maxWeight, long timeToLiveMillis) {
+		if (maxWeight < 1 || timeToLiveMillis < 1) {
+			throw new IllegalArgumentException("Cache size and time to live must be positive");
+		}
+		this.delegate = delegate;
+		this.maxWeight = maxWeight;
+		this.timeToLiveMillis = timeToLiveMillis;
+	}
+
+	/**
+	 * Empties the cache.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		weight = 0;
+		generation++;
+	}
+
+	/**
+	 * Empties the cache, since the imported films may belong in any cached result.
+	 */
+	@Override
+	public void filmsImported(List<Film> films) {
+		invalidateAll();
+	}
+
+	/**
+	 * Empties the cache after an import too large to list its films.
+	 */
+	@Override
+	public void filmsImported(int filmCount) {
+		invalidateAll();
+	}
+
+	/**
+	 * Returns the size and hit statistics of the cache.
+	 *
+	 * @return a snapshot of the cache statistics
+	 */
+	public synchronized CacheStats getStats() {
+		return new CacheStats(entries.size(), weight, maxWeight, hitCount, missCount, evictionCount, expiredCount);
+	}
+
+	/**
+	 * Returns the cached result for a key, or runs the search and caches its result.
+	 * The search runs without holding the lock, so a slow query does not block cache hits.
+	 *
+	 * @param key 		the search type and parameters
+	 * @param weigher 	counts the films in a result
+	 * @param search 	runs the search on the delegate
+	 * @return the cached or fetched result
+	 */
+	private <T> T get(List<Object> key, ToIntFunction<T> weigher, Supplier<T> search) {
+		long searchGeneration;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.expiresAt > System.currentTimeMillis()) {
+					hitCount++;
+					@SuppressWarnings("unchecked")
+					T value = (T) entry.value;
+					return value;
+				}
+				remove(key, entry);
+				expiredCount++;
+			}
+			missCount++;
+			searchGeneration = generation;
+		}
+
+		T value = search.get();
+		int valueWeight = Math.max(1, weigher.applyAsInt(value));
+
+		synchronized (this) {
+			if (searchGeneration == generation && valueWeight <= maxWeight) {
+				Entry previous = entries.put(key, new Entry(value, valueWeight, System.currentTimeMillis() + timeToLiveMillis));
+				if (previous != null) {
+					weight -= previous.weight;
+				}
+				weight += valueWeight;
+				evict();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Evicts the least recently used results until the cache is within its bound.
+	 */
+	private void evict() {
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (weight > maxWeight && eldest.hasNext()) {
+			weight -= eldest.next().weight;
+			eldest.remove();
+			evictionCount++;
+		}
+	}
+
+	private void remove(List<Object> key, Entry entry) {
+		entries.remove(key);
+		weight -= entry.weight;
+	}
+
+	private List<Film> getList(List<Object> key, Supplier<List<Film>> search) {
+		List<Film> films = get(key, List::size, () -> new ArrayList<>(search.get()));
+		return new ArrayList<>(films); // callers may change their copy
+	}
+
+	private FilmPage getPage(List<Object> key, Supplier<FilmPage> search) {
+		return get(key, page -> page.getFilms().size(), search);
+	}
+
+	/**
+	 * Builds a cache key. Text parameters are lower cased, since the searches are not case sensitive.
+	 */
+	private static List<Object> key(Object... parts) {
+		for (int i = 0; i < parts.length; i++) {
+			if (parts[i] instanceof String) {
+				parts[i] = CatalogSnapshot.normalize((String) parts[i]);
+			}
+		}
+		return Arrays.asList(parts);
+	}
+
+	private static Object cursorKey(FilmCursor after) {
+		return after == null ? null : Arrays.asList(after.getTitle(), after.getFilmId());
+	}
+
+	@Override
+	public List<Film> getAllFilms() {
+		return getList(key("all"), delegate::getAllFilms);
+	}
+
+	@Override
+	public Stream<Film> streamAllFilms() {
+		return delegate.streamAllFilms();
+	}
+
+	@Override
+	public FilmPage getAllFilms(FilmCursor after, int pageSize) {
+		return getPage(key("allPage", cursorKey(after), pageSize), () -> delegate.getAllFilms(after, pageSize));
+	}
+
+	@Override
+	public List<Film> getFilmByTitle(String partialTitle) {
+		return getList(key("title", partialTitle), () -> delegate.getFilmByTitle(partialTitle));
+	}
+
+	@Override
+	public FilmPage getFilmByTitle(String partialTitle, FilmCursor after, int pageSize) {
+		return getPage(key("titlePage", partialTitle, cursorKey(after), pageSize),
+				() -> delegate.getFilmByTitle(partialTitle, after, pageSize));
+	}
+
+	@Override
+	public List<Film> getFilmByGenre(String genre) {
+		return getList(key("genre", genre), () -> delegate.getFilmByGenre(genre));
+	}
+
+	@Override
+	public FilmPage getFilmByGenre(String genre, FilmCursor after, int pageSize) {
+		return getPage(key("genrePage", genre, cursorKey(after), pageSize),
+				() -> delegate.getFilmByGenre(genre, after, pageSize));
+	}
+
+	@Override
+	public List<Film> getFilmByReleaseYear(int releaseYear) {
+		return getList(key("year", releaseYear), () -> delegate.getFilmByReleaseYear(releaseYear));
+	}
+
+	@Override
+	public FilmPage getFilmByReleaseYear(int releaseYear, FilmCursor after, int pageSize) {
+		return getPage(key("yearPage", releaseYear, cursorKey(after), pageSize),
+				() -> delegate.getFilmByReleaseYear(releaseYear, after, pageSize));
+	}
+
+	@Override
+	public Stream<Film> streamFilmSummaries() {
+		return delegate.streamFilmSummaries();
+	}
+
+	/**
+	 * Passes the lookup on to the underlying FilmHandler, since the film view requests every description only once.
+	 */
+	@Override
+	public Map<Integer, String> getDescriptions(Collection<Integer> filmIds) {
+		return delegate.getDescriptions(filmIds);
+	}
+
+	@Override
+	public List<Film> findFilms(FilmSearchCriteria criteria) {
+		return delegate.findFilms(criteria);
+	}
+
+	@Override
+	public List<Film> searchFullText(String searchText, int maxResults) {
+		return getList(key("fullText", searchText, maxResults), () -> delegate.searchFullText(searchText, maxResults));
+	}
+
+	/**
+	 * A cached result with its weight and expiry time.
+	 */
+	private static final class Entry {
+		private final Object value;
+		private final int weight;
+		private final long expiresAt;
+
+		private Entry(Object value, int weight, long expiresAt) {
+			this.value = value;
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
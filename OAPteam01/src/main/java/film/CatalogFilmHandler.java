@@ -0,0 +1,659 @@
+package film;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A FilmHandler that answers every search from an in-memory copy of the catalog instead of the database.
+ * The catalog is read from a source FilmHandler, normally a {@link FilmManager}, the first time it is needed
+ * and whenever {@link #refresh()} is called. Searches are index lookups in a {@link CatalogSnapshot}.
+ *
+ * <p>A refresh builds a complete new snapshot and then replaces the old one in a single write, so searches
+ * never wait for a refresh and never see a half built catalog. Films added by a {@link FilmImportService}
+ * are merged into the catalog in the same way, without reading the database again.
+ *
+ * <p>Given a {@link FilmChangeLog}, the catalog can also be kept up to date incrementally with
+ * {@link #refreshChanges()}, which only reads the films changed since the previous check. Each check looks a
+ * few seconds further back than the previous one ended, so changes committed late are not missed; films that
+ * did not actually change are ignored. Deleted films and deleted film_category rows leave no trace in
+ * last_update, so every ten minutes the check also compares the genres of every film in the catalog with those
+ * in the database, and drops the films that no longer have any, as a full load would. The same comparison reads
+ * the films the catalog has missed, such as films changed before the time a check looked back to.
+ * {@link #startAutoRefresh()} runs the check on a schedule.
+ *
+ * <p>Given a {@link CatalogSnapshotFile}, the catalog is written to disk whenever it changes, and the first load
+ * reads that file instead of the database. The films in the file are available at once, while a background
+ * check with {@link #refreshChanges()} brings them up to date with everything changed since the file was
+ * written, deleted films included. The shared catalog keeps its file at the path given by the
+ * film.catalog.snapshotFile system property (default film-catalog.snapshot in the working directory); an empty
+ * path turns the file off.
+ *
+ * <p>The catalog also keeps a {@link TitleSuggester} for type-ahead search, which is rebuilt on every refresh
+ * and extended with every import.
+ *
+ * <p>The catalog holds film summaries without descriptions, so it stays small even for a large catalog.
+ * The paged finders and {@link #streamFilmSummaries()} return these summaries, as FilmHandler allows, and
+ * listings load the descriptions of the rows they show with {@link #getDescriptions(java.util.Collection)}.
+ * The other finders return complete films: the films found in the catalog get their descriptions from the
+ * source in one lookup, and {@link #getAllFilms()} and {@link #streamAllFilms()} read the whole catalog
+ * from the source.
+ *
+ * <p>Full-text searches rank films by relevance with the full-text index of the database, so they are passed on
+ * to the source, as are combined searches by rating, which the catalog does not hold. Other combined searches
+ * are answered from the catalog, in parallel for large catalogs.
+ *
+ * <p>The application shares one catalog, returned by {@link #getSharedCatalog()}.
+ *
+ * @author Erica Laub Varpe
+ */
+public class CatalogFilmHandler implements FilmHandler, FilmImportListener {
+
+	/** How much further back than the previous check each check for changes looks, in milliseconds */
+	private static final long CHANGE_OVERLAP_MILLIS = Long.getLong("film.catalog.changeOverlapMillis", 5_000);
+
+	/** How often the catalog is compared with the database to find deleted films and genres, in milliseconds */
+	private static final long RECONCILE_INTERVAL_MILLIS = Long.getLong("film.catalog.reconcileMillis", 600_000);
+
+	/** How long after a load that found no films it is retried, in milliseconds; each retry waits twice as long */
+	private static final long EMPTY_RETRY_MILLIS = Long.getLong("film.catalog.emptyRetryMillis", 1_000);
+
+	/** The longest wait between retries of a load that found no films, in milliseconds */
+	private static final long EMPTY_RETRY_MAX_MILLIS = Long.getLong("film.catalog.emptyRetryMaxMillis", 60_000);
+
+	/** The database behind the shared catalog */
+	private static final FilmManager SHARED_DATABASE = new FilmManager();
+
+	/** The database queries behind the shared catalog, cached since the searches it passes on repeat often */
+	private static final CachingFilmHandler SHARED_CACHE = new CachingFilmHandler(SHARED_DATABASE);
+
+	/** The catalog shared by the GUI, loaded from the database */
+	private static final CatalogFilmHandler SHARED_CATALOG = new CatalogFilmHandler(SHARED_CACHE, SHARED_DATABASE);
+
+	static {
+		FilmImportService.addImportListener(SHARED_CACHE);
+		FilmImportService.addImportListener(SHARED_CATALOG);
+		String snapshotPath = System.getProperty("film.catalog.snapshotFile", "film-catalog.snapshot");
+		if (!snapshotPath.isEmpty()) {
+			SHARED_CATALOG.setSnapshotFile(new CatalogSnapshotFile(Paths.get(snapshotPath)));
+		}
+	}
+
+	/** Where the catalog is loaded from */
+	private final FilmHandler source;
+
+	/** Where changes to the catalog are read from, or null to always reload the whole catalog */
+	private final FilmChangeLog changeLog;
+
+	/** Database time the next check for changes continues from, or null if unknown. Guarded by refreshLock. */
+	private Timestamp changesCheckedAt;
+
+	/** When the catalog was last compared with the film IDs of the database. Guarded by refreshLock. */
+	private long reconciledAt;
+
+	/** Where the catalog is kept on disk between runs, or null to always load it from the source */
+	private volatile CatalogSnapshotFile snapshotFile;
+
+	/** Runs the scheduled checks for changes, or null if they are not running. Guarded by this. */
+	private ScheduledExecutorService refreshScheduler;
+
+	/** The current snapshot, or null if the catalog has not been loaded yet */
+	private volatile CatalogSnapshot snapshot;
+
+	/** Title completions for the films of the current snapshot, or null if the catalog has not been loaded yet */
+	private volatile TitleSuggester titleSuggester;
+
+	/** Serializes refreshes and merges, so a slower one can not overwrite the result of a newer one */
+	private final Object refreshLock = new Object();
+
+	/** When an empty catalog is next loaded again, in milliseconds since the epoch */
+	private final AtomicLong emptyRetryAt = new AtomicLong();
+
+	/** How long the retry after the next one waits, in milliseconds. Only changed by the search that claims a retry. */
+	private volatile long emptyRetryDelay = EMPTY_RETRY_MILLIS;
+
+	/**
+	 * Creates a catalog that is loaded from the given FilmHandler.
+	 *
+	 * @param source 	the FilmHandler to load the films from
+	 */
+	public CatalogFilmHandler(FilmHandler source) {
+		this(source, null);
+	}
+
+	/**
+	 * Creates a catalog that is loaded from the given FilmHandler and kept up to date with the given change log.
+	 *
+	 * @param source 		the FilmHandler to load the films from
+	 * @param changeLog 	where changes to the films are read from, or null to reload the whole catalog instead
+	 */
+	public CatalogFilmHandler(FilmHandler source, FilmChangeLog changeLog) {
+		this.source = source;
+		this.changeLog = changeLog;
+	}
+
+	/**
+	 * Returns the catalog shared by the application. It is kept up to date with film imports.
+	 *
+	 * @return the shared catalog
+	 */
+	public static CatalogFilmHandler getSharedCatalog() {
+		return SHARED_CATALOG;
+	}
+
+	/**
+	 * Sets the file the catalog is kept in between runs. It is read on the first load if the catalog has a
+	 * change log to bring it up to date, and written whenever the catalog changes.
+	 *
+	 * @param snapshotFile 	the file, or null to always load the catalog from the source
+	 */
+	public void setSnapshotFile(CatalogSnapshotFile snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 * Reloads the catalog from its source and swaps in the new snapshot.
+	 * Searches keep using the previous snapshot until the new one is complete. If the source fails part way,
+	 * the exception is thrown and the previous snapshot is kept, so a catalog that was only read in part is
+	 * never used or written to the snapshot file.
+	 */
+	public void refresh() {
+		synchronized (refreshLock) {
+			Timestamp loadStartedAt = getDatabaseTime();
+			List<Film> films;
+			try (Stream<Film> stream = source.streamFilmSummaries()) {
+				films = stream.collect(Collectors.toList());
+			}
+			titleSuggester = new TitleSuggester(films);
+			snapshot = new CatalogSnapshot(films);
+			changesCheckedAt = loadStartedAt;
+			reconciledAt = System.currentTimeMillis();
+			writeSnapshotFile();
+		}
+	}
+
+	/**
+	 * Loads the catalog from the snapshot file and starts a background check for the changes made since the
+	 * file was written. Must be called while holding the refresh lock.
+	 *
+	 * @return true if the catalog was loaded, false if there is no usable file
+	 */
+	private boolean loadSnapshotFile() {
+		CatalogSnapshotFile file = snapshotFile;
+		if (file == null || changeLog == null) {
+			return false; // without a change log the films of the file could never be brought up to date
+		}
+		CatalogSnapshotFile.Contents contents = file.read();
+		if (contents == null || contents.getSnapshot().size() == 0) {
+			return false;
+		}
+		CatalogSnapshot loaded = contents.getSnapshot();
+		titleSuggester = new TitleSuggester(loaded.getAllFilms());
+		changesCheckedAt = contents.getCheckedAt();
+		reconciledAt = 0; // films and genres may have been deleted since the file was written
+		snapshot = loaded; // last, so readers that see the snapshot also see its title suggester
+
+		Thread update = new Thread(() -> {
+			try {
+				refreshChanges();
+			} catch (RuntimeException e) {
+				System.err.println("Error refreshing film catalog: " + e.getMessage());
+			}
+		}, "film-catalog-update");
+		update.setDaemon(true);
+		update.start();
+		return true;
+	}
+
+	/**
+	 * Writes the current snapshot to the snapshot file, if there is one and the time of the last check for
+	 * changes is known. Must be called while holding the refresh lock.
+	 */
+	private void writeSnapshotFile() {
+		CatalogSnapshotFile file = snapshotFile;
+		if (file == null || changesCheckedAt == null || snapshot.size() == 0) {
+			return;
+		}
+		try {
+			file.write(snapshot, changesCheckedAt);
+		} catch (IOException e) {
+			System.err.println("Error writing film catalog snapshot " + file.getPath() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Brings the catalog up to date with the films added, changed and, when it is time to look for them,
+	 * deleted in the database since the previous refresh. Only the changed films are read. Before the catalog
+	 * has been loaded, it is loaded like {@link #getSnapshot()} does, from the snapshot file if there is one;
+	 * without a change log, the whole catalog is reloaded instead. Errors are logged, and the catalog is kept
+	 * as it was.
+	 */
+	public void refreshChanges() {
+		synchronized (refreshLock) {
+			if (snapshot == null) {
+				load();
+				return;
+			}
+			if (changesCheckedAt == null) {
+				try {
+					refresh();
+				} catch (RuntimeException e) {
+					System.err.println("Error refreshing film catalog: " + e.getMessage());
+				}
+				return;
+			}
+			try {
+				Timestamp since = new Timestamp(changesCheckedAt.getTime() - CHANGE_OVERLAP_MILLIS);
+				FilmChanges changes = changeLog.getChangesSince(since);
+				List<Film> changed = changes.getFilms();
+				Map<Integer, List<String>> genres = null;
+				if (System.currentTimeMillis() - reconciledAt >= RECONCILE_INTERVAL_MILLIS) {
+					genres = changeLog.getAllFilmGenres();
+					List<Integer> missing = findMissingFilmIds(genres.keySet(), changed);
+					if (!missing.isEmpty()) {
+						changed = new ArrayList<>(changed);
+						changed.addAll(changeLog.getFilmsById(missing));
+					}
+					reconciledAt = System.currentTimeMillis();
+				}
+				changesCheckedAt = changes.getCheckedAt();
+				if (applyChanges(changed, genres)) {
+					writeSnapshotFile();
+				}
+			} catch (SQLException e) {
+				System.err.println("Error refreshing film catalog: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns the IDs of the films in the database that are neither in the catalog nor among the changed films.
+	 * Must be called while holding the refresh lock, after the catalog has been loaded.
+	 *
+	 * @param filmIds 	the IDs of every film in the database that has genres
+	 * @param changed 	the changed films, which are added anyway
+	 * @return the IDs of the missing films
+	 */
+	private List<Integer> findMissingFilmIds(Set<Integer> filmIds, Collection<Film> changed) {
+		Set<Integer> missing = new HashSet<>(filmIds);
+		ColumnarFilmStore store = snapshot.getStore();
+		for (int i = 0; i < store.size() && !missing.isEmpty(); i++) {
+			missing.remove(store.getFilmId(i));
+		}
+		for (Film film : changed) {
+			missing.remove(film.getFilmId());
+		}
+		return new ArrayList<>(missing);
+	}
+
+	/**
+	 * Checks for changes every film.catalog.refreshMillis milliseconds (default 30000) on a background thread.
+	 */
+	public void startAutoRefresh() {
+		startAutoRefresh(Long.getLong("film.catalog.refreshMillis", 30_000));
+	}
+
+	/**
+	 * Checks for changes with {@link #refreshChanges()} on a background thread, until {@link #stopAutoRefresh()}
+	 * is called. Does nothing if the checks are already running.
+	 *
+	 * @param periodMillis 	the time between the end of one check and the start of the next, in milliseconds
+	 */
+	public synchronized void startAutoRefresh(long periodMillis) {
+		if (refreshScheduler != null) {
+			return;
+		}
+		refreshScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "film-catalog-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		refreshScheduler.scheduleWithFixedDelay(() -> {
+			try {
+				refreshChanges();
+			} catch (RuntimeException e) {
+				// keep the schedule running, the next check may succeed
+				System.err.println("Error refreshing film catalog: " + e.getMessage());
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the checks started by {@link #startAutoRefresh()}.
+	 */
+	public synchronized void stopAutoRefresh() {
+		if (refreshScheduler != null) {
+			refreshScheduler.shutdownNow();
+			refreshScheduler = null;
+		}
+	}
+
+	/**
+	 * Returns the current database time, or null if there is no change log or the database can not be reached.
+	 */
+	private Timestamp getDatabaseTime() {
+		if (changeLog == null) {
+			return null;
+		}
+		try {
+			return changeLog.getCurrentTime();
+		} catch (SQLException e) {
+			System.err.println("Error reading database time: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Adds or replaces changed films and, given the genres of every film in the database, corrects the genres
+	 * of the catalog and removes the films without any, then swaps in a snapshot with the result. Films that are
+	 * the same as in the catalog are ignored, and nothing is rebuilt if nothing changed. Must be called while
+	 * holding the refresh lock, after the catalog has been loaded.
+	 *
+	 * @param changed 	the added or changed films
+	 * @param genres 	the genres of every film in the database that has any, or null to keep the genres
+	 * @return true if a new snapshot was swapped in
+	 */
+	private boolean applyChanges(Collection<Film> changed, Map<Integer, List<String>> genres) {
+		if (changed.isEmpty() && genres == null) {
+			return false;
+		}
+		Map<Integer, Film> films = new LinkedHashMap<>();
+		for (Film film : snapshot.getAllFilms()) {
+			films.put(film.getFilmId(), film);
+		}
+
+		List<Film> added = new ArrayList<>();
+		boolean replaced = false;
+		for (Film film : changed) {
+			Film previous = films.get(film.getFilmId());
+			if (previous == null) {
+				added.add(film);
+			} else if (isSame(previous, film)) {
+				continue;
+			} else {
+				replaced = true;
+			}
+			films.put(film.getFilmId(), film);
+		}
+		if (genres != null) {
+			for (Iterator<Film> iterator = films.values().iterator(); iterator.hasNext(); ) {
+				Film film = iterator.next();
+				List<String> filmGenres = genres.get(film.getFilmId());
+				if (filmGenres == null) {
+					iterator.remove(); // deleted, or without genres like the films a full load leaves out
+					replaced = true;
+				} else if (!filmGenres.equals(film.getGenres())) {
+					film.setGenres(filmGenres);
+					replaced = true;
+				}
+			}
+		}
+		if (!replaced && added.isEmpty()) {
+			return false;
+		}
+
+		if (replaced) {
+			titleSuggester = new TitleSuggester(films.values());
+		} else {
+			titleSuggester.addAll(added);
+		}
+		snapshot = new CatalogSnapshot(films.values());
+		return true;
+	}
+
+	/**
+	 * Compares the fields of two versions of a film that the catalog holds.
+	 */
+	private static boolean isSame(Film a, Film b) {
+		return a.getReleaseYear() == b.getReleaseYear()
+				&& String.valueOf(a.getTitle()).equals(String.valueOf(b.getTitle()))
+				&& a.getGenres().equals(b.getGenres());
+	}
+
+	/**
+	 * Returns whether the catalog has been loaded, so that searches are answered without waiting for the source.
+	 *
+	 * @return true if the catalog is loaded
+	 */
+	public boolean isLoaded() {
+		return snapshot != null;
+	}
+
+	/**
+	 * Returns the title completions for the films of the catalog, loading the catalog first if that has
+	 * not happened yet.
+	 *
+	 * @return the title suggester
+	 */
+	public TitleSuggester getTitleSuggester() {
+		getSnapshot();
+		return titleSuggester;
+	}
+
+	/**
+	 * Returns the current snapshot, loading the catalog first if that has not happened yet.
+	 *
+	 * <p>If the catalog is empty, because the database has no films or could not be read, the empty snapshot is
+	 * kept and searches find nothing, without waiting. The load is retried on a background thread, first after
+	 * film.catalog.emptyRetryMillis milliseconds (default 1000), then after twice as long each time, up to
+	 * film.catalog.emptyRetryMaxMillis (default 60000).
+	 *
+	 * @return the current snapshot
+	 */
+	public CatalogSnapshot getSnapshot() {
+		CatalogSnapshot current = snapshot;
+		if (current == null) {
+			synchronized (refreshLock) {
+				if (snapshot == null) {
+					load();
+				}
+				current = snapshot;
+			}
+		}
+		if (current.size() == 0) {
+			retryEmptyLoad();
+		}
+		return current;
+	}
+
+	/**
+	 * Loads the catalog for the first time: from the snapshot file if there is a usable one, or else from the
+	 * source. If the source fails, the catalog starts empty, like a load that found no films, and the load is
+	 * retried by the searches. Must be called while holding the refresh lock, before the catalog has been loaded.
+	 */
+	private void load() {
+		if (!loadSnapshotFile()) {
+			try {
+				refresh();
+			} catch (RuntimeException e) {
+				System.err.println("Error loading film catalog: " + e.getMessage());
+				titleSuggester = new TitleSuggester(Collections.<Film>emptyList());
+				snapshot = new CatalogSnapshot(Collections.<Film>emptyList());
+			}
+		}
+		emptyRetryDelay = EMPTY_RETRY_MILLIS;
+		emptyRetryAt.set(System.currentTimeMillis() + EMPTY_RETRY_MILLIS);
+	}
+
+	/**
+	 * Loads the catalog again on a background thread if it is time to retry a load that found no films.
+	 * Only one search claims each retry, and the next one waits twice as long, unless the retry finds films.
+	 */
+	private void retryEmptyLoad() {
+		long retryAt = emptyRetryAt.get();
+		long now = System.currentTimeMillis();
+		long delay = emptyRetryDelay;
+		if (now < retryAt || !emptyRetryAt.compareAndSet(retryAt, now + delay)) {
+			return;
+		}
+		emptyRetryDelay = Math.min(EMPTY_RETRY_MAX_MILLIS, delay * 2);
+
+		Thread retry = new Thread(() -> {
+			try {
+				refresh();
+				if (snapshot.size() > 0) {
+					emptyRetryDelay = EMPTY_RETRY_MILLIS;
+				}
+			} catch (RuntimeException e) {
+				System.err.println("Error loading film catalog: " + e.getMessage());
+			}
+		}, "film-catalog-retry");
+		retry.setDaemon(true);
+		retry.start();
+	}
+
+	/**
+	 * Describes the memory used by the catalog, comparing its compact form with the same films held as an
+	 * ArrayList of Film objects. The figures are estimates for a 64-bit JVM with compressed references, and
+	 * leave out the search indexes, which are the same for both. The estimate for the list decodes every film,
+	 * so the application only prints the report at startup when the film.catalog.memoryReport system property
+	 * is true.
+	 *
+	 * @return a one line memory report
+	 */
+	public String getMemoryReport() {
+		ColumnarFilmStore store = getSnapshot().getStore();
+		int films = Math.max(1, store.size());
+		long columnarBytes = store.getEstimatedBytes();
+		long listBytes = ColumnarFilmStore.estimateListBytes(store.getFilms());
+		return String.format("Film catalog: %d films, %,d bytes (%d per film) in columnar form, " +
+				"%,d bytes (%d per film) as ArrayList<Film>",
+				store.size(), columnarBytes, columnarBytes / films, listBytes, listBytes / films);
+	}
+
+	/**
+	 * Adds newly imported films to the catalog.
+	 */
+	@Override
+	public void filmsImported(List<Film> films) {
+		synchronized (refreshLock) {
+			if (snapshot == null) {
+				return; // loaded from the source, imported films included, on first use
+			}
+			if (applyChanges(films, null)) {
+				writeSnapshotFile();
+			}
+		}
+	}
+
+	/**
+	 * Reads the films of a large import back from the database with {@link #refreshChanges()}.
+	 */
+	@Override
+	public void filmsImported(int filmCount) {
+		if (snapshot != null) {
+			refreshChanges();
+		}
+	}
+
+	/**
+	 * Adds the descriptions of the source to films found in the catalog.
+	 *
+	 * @param films 	films without descriptions, decoded from the catalog for this caller
+	 * @return the same films, with their descriptions, or still without them if they can not be read
+	 */
+	private List<Film> withDescriptions(List<Film> films) {
+		if (films.isEmpty()) {
+			return films;
+		}
+		List<Integer> filmIds = new ArrayList<>(films.size());
+		for (Film film : films) {
+			filmIds.add(film.getFilmId());
+		}
+		Map<Integer, String> descriptions;
+		try {
+			descriptions = source.getDescriptions(filmIds);
+		} catch (RuntimeException e) {
+			System.err.println("Error fetching descriptions: " + e.getMessage());
+			return films;
+		}
+		for (Film film : films) {
+			film.setDescription(descriptions.get(film.getFilmId()));
+		}
+		return films;
+	}
+
+	@Override
+	public List<Film> getAllFilms() {
+		return source.getAllFilms();
+	}
+
+	@Override
+	public Stream<Film> streamAllFilms() {
+		return source.streamAllFilms();
+	}
+
+	@Override
+	public FilmPage getAllFilms(FilmCursor after, int pageSize) {
+		return getSnapshot().getAllFilms(after, pageSize);
+	}
+
+	@Override
+	public List<Film> getFilmByTitle(String partialTitle) {
+		return withDescriptions(getSnapshot().getFilmByTitle(partialTitle));
+	}
+
+	@Override
+	public FilmPage getFilmByTitle(String partialTitle, FilmCursor after, int pageSize) {
+		return getSnapshot().getFilmByTitle(partialTitle, after, pageSize);
+	}
+
+	@Override
+	public List<Film> getFilmByGenre(String genre) {
+		return withDescriptions(getSnapshot().getFilmByGenre(genre));
+	}
+
+	@Override
+	public FilmPage getFilmByGenre(String genre, FilmCursor after, int pageSize) {
+		return getSnapshot().getFilmByGenre(genre, after, pageSize);
+	}
+
+	@Override
+	public List<Film> getFilmByReleaseYear(int releaseYear) {
+		return withDescriptions(getSnapshot().getFilmByReleaseYear(releaseYear));
+	}
+
+	@Override
+	public FilmPage getFilmByReleaseYear(int releaseYear, FilmCursor after, int pageSize) {
+		return getSnapshot().getFilmByReleaseYear(releaseYear, after, pageSize);
+	}
+
+	@Override
+	public Stream<Film> streamFilmSummaries() {
+		return getSnapshot().getAllFilms().stream();
+	}
+
+	@Override
+	public Map<Integer, String> getDescriptions(Collection<Integer> filmIds) {
+		return source.getDescriptions(filmIds);
+	}
+
+	@Override
+	public List<Film> findFilms(FilmSearchCriteria criteria) {
+		if (criteria.getRating() != null) {
+			return source.findFilms(criteria);
+		}
+		return withDescriptions(getSnapshot().findFilms(criteria));
+	}
+
+	@Override
+	public List<Film> searchFullText(String searchText, int maxResults) {
+		return source.searchFullText(searchText, maxResults);
+	}
+}
@@ -0,0 +1,424 @@
+package film;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable, indexed copy of the film catalog held in memory.
+ * Films are stored in title order, which is the order of their normalized titles (see {@link #normalize(String)})
+ * as UTF-8 bytes and then of their film IDs, and every index maps a key to the ascending positions of the
+ * matching films, so results come out in title order without sorting.
+ *
+ * <p>The snapshot has three indexes:
+ * <ul>
+ *   <li>genre name (not case sensitive) to films</li>
+ *   <li>release year to films</li>
+ *   <li>title trigram to films, for substring searches on titles</li>
+ * </ul>
+ *
+ * <p>A title search looks up the trigram of the search term with the fewest films and only checks those
+ * films, instead of every film in the catalog. Search terms shorter than three characters scan all titles.
+ * Scans and combined searches check large sets of films in parallel with {@link ParallelCatalogSearch}.
+ *
+ * <p>The films themselves are kept in a {@link ColumnarFilmStore}, which needs far less memory than one Film
+ * object per film. Searches only read the columns they need, and the films a snapshot returns are decoded
+ * from the store as new Film objects. Title searches and cursors are compared with the normalized titles the
+ * store keeps, so they never decode or lower case a title.
+ *
+ * <p>Since a snapshot never changes after it is built, any number of threads can read it without locking.
+ * The films it returns are copies that belong to the caller.
+ *
+ * @author Erica Laub Varpe
+ */
+public class CatalogSnapshot {
+
+    /** Number of characters in a title index key */
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int[] NO_FILMS = new int[0];
+
+    private final ColumnarFilmStore films;
+    private final Map<String, int[]> genreIndex;
+    private final Map<Integer, int[]> yearIndex;
+    private final Map<String, int[]> titleIndex;
+
+    /**
+     * Builds a snapshot of the given films.
+     *
+     * @param catalog 	the films to index
+     */
+    public CatalogSnapshot(Collection<Film> catalog) {
+        this(new ColumnarFilmStore(sortByTitle(catalog)));
+    }
+
+    /**
+     * Builds a snapshot of the films of a store, for example one read back from a {@link CatalogSnapshotFile}.
+     * The films of the store must already be in title order.
+     *
+     * @param store 	the films to index, in title order
+     */
+    public CatalogSnapshot(ColumnarFilmStore store) {
+        films = store;
+
+        Map<String, IntStream.Builder> genres = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<Integer, IntStream.Builder> years = new HashMap<>();
+        Map<String, IntStream.Builder> grams = new HashMap<>();
+
+        for (int i = 0; i < store.size(); i++) {
+            for (String genre : store.getGenres(i)) {
+                if (genre != null) {
+                    genres.computeIfAbsent(genre, key -> IntStream.builder()).add(i);
+                }
+            }
+            years.computeIfAbsent(store.getReleaseYear(i), key -> IntStream.builder()).add(i);
+            for (String gram : grams(store.getNormalizedTitle(i))) {
+                grams.computeIfAbsent(gram, key -> IntStream.builder()).add(i);
+            }
+        }
+
+        genreIndex = build(genres, new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+        yearIndex = build(years, new HashMap<>());
+        titleIndex = build(grams, new HashMap<>());
+    }
+
+    /**
+     * Sorts films in title order, normalizing every title once.
+     */
+    private static List<Film> sortByTitle(Collection<Film> catalog) {
+        Film[] films = catalog.toArray(new Film[0]);
+        byte[][] titles = new byte[films.length][];
+        Integer[] order = new Integer[films.length];
+        for (int i = 0; i < films.length; i++) {
+            titles[i] = normalizedBytes(films[i].getTitle());
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int result = compareBytes(titles[a], titles[b]);
+            return result != 0 ? result : Integer.compare(films[a].getFilmId(), films[b].getFilmId());
+        });
+        List<Film> sorted = new ArrayList<>(films.length);
+        for (int i : order) {
+            sorted.add(films[i]);
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the number of films in the snapshot.
+     *
+     * @return the number of films
+     */
+    public int size() {
+        return films.size();
+    }
+
+    /**
+     * Returns all films, in title order.
+     *
+     * @return a list of all films
+     */
+    public List<Film> getAllFilms() {
+        return films.getFilms();
+    }
+
+    /**
+     * Returns the films whose titles contain the search term, not case sensitive, in title order.
+     *
+     * @param partialTitle 	the search term
+     * @return the matching films
+     */
+    public List<Film> getFilmByTitle(String partialTitle) {
+        return toFilms(findByTitle(partialTitle));
+    }
+
+    /**
+     * Returns the films of a genre, in title order.
+     *
+     * @param genre 	the genre name, not case sensitive
+     * @return the films of the genre
+     */
+    public List<Film> getFilmByGenre(String genre) {
+        return toFilms(findByGenre(genre));
+    }
+
+    /**
+     * Returns the films released in a year, in title order.
+     *
+     * @param releaseYear 	the release year
+     * @return the films released in that year
+     */
+    public List<Film> getFilmByReleaseYear(int releaseYear) {
+        return toFilms(yearIndex.getOrDefault(releaseYear, NO_FILMS));
+    }
+
+    /**
+     * Returns the films that match a combination of criteria, sorted and limited as the criteria specify.
+     * The rating criterion is not supported, since the snapshot does not hold ratings.
+     *
+     * @param criteria 	the criteria the films must match, without a rating
+     * @return the matching films
+     */
+    public List<Film> findFilms(FilmSearchCriteria criteria) {
+        if (criteria.getRating() != null) {
+            throw new IllegalArgumentException("The catalog snapshot can not search by rating");
+        }
+        return toFilms(findByCriteria(criteria));
+    }
+
+    /**
+     * Returns one page of all films.
+     *
+     * @param after 	the cursor of the previous page, or null for the first page
+     * @param pageSize 	the maximum number of films on the page
+     * @return the page of films
+     */
+    public FilmPage getAllFilms(FilmCursor after, int pageSize) {
+        return page(null, after, pageSize);
+    }
+
+    /**
+     * Returns one page of the films whose titles contain the search term.
+     *
+     * @param partialTitle 	the search term
+     * @param after 		the cursor of the previous page, or null for the first page
+     * @param pageSize 		the maximum number of films on the page
+     * @return the page of films
+     */
+    public FilmPage getFilmByTitle(String partialTitle, FilmCursor after, int pageSize) {
+        return page(findByTitle(partialTitle), after, pageSize);
+    }
+
+    /**
+     * Returns one page of the films of a genre.
+     *
+     * @param genre 	the genre name, not case sensitive
+     * @param after 	the cursor of the previous page, or null for the first page
+     * @param pageSize 	the maximum number of films on the page
+     * @return the page of films
+     */
+    public FilmPage getFilmByGenre(String genre, FilmCursor after, int pageSize) {
+        return page(findByGenre(genre), after, pageSize);
+    }
+
+    /**
+     * Returns one page of the films released in a year.
+     *
+     * @param releaseYear 	the release year
+     * @param after 		the cursor of the previous page, or null for the first page
+     * @param pageSize 		the maximum number of films on the page
+     * @return the page of films
+     */
+    public FilmPage getFilmByReleaseYear(int releaseYear, FilmCursor after, int pageSize) {
+        return page(yearIndex.getOrDefault(releaseYear, NO_FILMS), after, pageSize);
+    }
+
+    /**
+     * Finds the positions of the films whose titles contain the search term.
+     */
+    private int[] findByTitle(String partialTitle) {
+        String term = normalize(partialTitle);
+        if (term.isEmpty()) {
+            return IntStream.range(0, films.size()).toArray();
+        }
+
+        int[] candidates = null;
+        if (term.length() >= GRAM_LENGTH) {
+            for (String gram : grams(term)) {
+                int[] positions = titleIndex.getOrDefault(gram, NO_FILMS);
+                if (candidates == null || positions.length < candidates.length) {
+                    candidates = positions;
+                }
+            }
+        }
+
+        byte[] text = normalizedBytes(term);
+        int count = candidates == null ? films.size() : candidates.length;
+        return ParallelCatalogSearch.search(candidates, count, position -> films.titleContains(position, text), null, 0);
+    }
+
+    /**
+     * Finds the positions of the films that match a combination of criteria, sorted and limited as they specify.
+     * Only the genres, title fragment and release years of the criteria are applied, since the snapshot does not
+     * hold ratings. The films are checked on several threads when there are many of them.
+     */
+    private int[] findByCriteria(FilmSearchCriteria criteria) {
+        String term = normalize(criteria.getTitleFragment());
+        Set<String> genres = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        genres.addAll(criteria.getGenres());
+        Integer fromYear = criteria.getFromYear();
+        Integer toYear = criteria.getToYear();
+        byte[] text = normalizedBytes(term);
+
+        // Only check the films of the most selective index
+        int[] candidates = null;
+        if (!genres.isEmpty()) {
+            candidates = genres.stream()
+                    .flatMapToInt(genre -> IntStream.of(genreIndex.getOrDefault(genre, NO_FILMS)))
+                    .sorted().distinct().toArray();
+        }
+        if (term.length() >= GRAM_LENGTH) {
+            for (String gram : grams(term)) {
+                int[] positions = titleIndex.getOrDefault(gram, NO_FILMS);
+                if (candidates == null || positions.length < candidates.length) {
+                    candidates = positions;
+                }
+            }
+        }
+
+        ParallelCatalogSearch.PositionFilter filter = position -> {
+            int year = films.getReleaseYear(position);
+            if ((fromYear != null && year < fromYear) || (toYear != null && year > toYear)) {
+                return false;
+            }
+            if (text.length > 0 && !films.titleContains(position, text)) {
+                return false;
+            }
+            if (!genres.isEmpty()) {
+                for (String genre : films.getGenres(position)) {
+                    if (genres.contains(genre)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        };
+
+        ParallelCatalogSearch.SortKey sortKey;
+        switch (criteria.getSortOrder()) {
+            case NEWEST_FIRST:
+                sortKey = position -> -films.getReleaseYear(position);
+                break;
+            case OLDEST_FIRST:
+                sortKey = films::getReleaseYear;
+                break;
+            default:
+                sortKey = null; // positions are already in title order
+                break;
+        }
+
+        int count = candidates == null ? films.size() : candidates.length;
+        return ParallelCatalogSearch.search(candidates, count, filter, sortKey, criteria.getLimit());
+    }
+
+    private int[] findByGenre(String genre) {
+        return genre == null ? NO_FILMS : genreIndex.getOrDefault(genre, NO_FILMS);
+    }
+
+    /**
+     * Cuts a page out of a list of positions, or out of all films if positions is null.
+     * The start of the page is found with a binary search for the cursor.
+     */
+    private FilmPage page(int[] positions, FilmCursor after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1: " + pageSize);
+        }
+        int count = positions == null ? films.size() : positions.length;
+        int start = 0;
+        if (after != null) {
+            byte[] title = normalizedBytes(after.getTitle());
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int position = positions == null ? mid : positions[mid];
+                if (compareToCursor(position, title, after.getFilmId()) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            start = low;
+        }
+
+        int end = Math.min(count, start + pageSize);
+        List<Film> page = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            page.add(films.getFilm(positions == null ? i : positions[i]));
+        }
+        return new FilmPage(page, end < count);
+    }
+
+    private List<Film> toFilms(int[] positions) {
+        List<Film> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(films.getFilm(position));
+        }
+        return result;
+    }
+
+    /**
+     * Compares the film at a position with the normalized title and film ID of a cursor, in title order.
+     */
+    private int compareToCursor(int position, byte[] title, int filmId) {
+        int order = films.compareTitle(position, title);
+        return order != 0 ? order : Integer.compare(films.getFilmId(position), filmId);
+    }
+
+    /**
+     * Returns the films of the snapshot in their compact form, for example to estimate their memory use.
+     *
+     * @return the columnar store of the films
+     */
+    public ColumnarFilmStore getStore() {
+        return films;
+    }
+
+    /**
+     * Lower cases a title or search term, so that searches are not case sensitive.
+     */
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a normalized title or search term, as the store keeps them.
+     */
+    static byte[] normalizedBytes(String text) {
+        return normalize(text).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares two byte arrays as unsigned values, which for UTF-8 is the order of their characters.
+     */
+    private static int compareBytes(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int order = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Returns the distinct trigrams of a normalized text.
+     */
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static <K> Map<K, int[]> build(Map<K, IntStream.Builder> builders, Map<K, int[]> index) {
+        for (Map.Entry<K, IntStream.Builder> entry : builders.entrySet()) {
+            index.put(entry.getKey(), entry.getValue().build().toArray());
+        }
+        return Collections.unmodifiableMap(index);
+    }
+}
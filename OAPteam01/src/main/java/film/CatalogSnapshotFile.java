@@ -0,0 +1,192 @@
+package film;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps a copy of the film catalog on disk, so the application can show films at startup without waiting for the
+ * database. The file holds the arrays of a {@link ColumnarFilmStore} after a fixed size header:
+ *
+ * <pre>
+ *   int  magic number "OAPC"
+ *   int  format version
+ *   long time the file was written, in milliseconds
+ *   long database time the catalog was checked for changes, in milliseconds
+ *   int  number of films
+ *   long length of the store data, in bytes
+ *   long CRC32 checksum of the store data
+ * </pre>
+ *
+ * <p>The file is read by mapping it into memory with {@link FileChannel#map}, which lets the checksum and the
+ * array copies run straight over the page cache. A file that is missing, has another format version, fails the
+ * checksum or is older than film.catalog.snapshotMaxAgeMillis (default seven days) is not used, and the catalog
+ * is loaded from the database instead.
+ *
+ * <p>A new file is written next to the old one and then moved over it, so a crash while writing never leaves a
+ * half written file behind.
+ *
+ * @author Erica Laub Varpe
+ */
+public class CatalogSnapshotFile {
+
+	/** "OAPC" in ASCII */
+	private static final int MAGIC = 0x4F415043;
+
+	/** Changed whenever the layout of the file or of the store changes, so older files are ignored */
+	private static final int FORMAT_VERSION = 2;
+
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 8 + 8;
+
+	/** Files older than this are not used, since reading all changes since then may take longer than a full load */
+	private static final long MAX_AGE_MILLIS = Long.getLong("film.catalog.snapshotMaxAgeMillis", 7L * 24 * 60 * 60 * 1000);
+
+	private final Path path;
+
+	/**
+	 * Creates a snapshot file at the given path. Nothing is read or written until {@link #read()} or
+	 * {@link #write(CatalogSnapshot, Timestamp)} is called.
+	 *
+	 * @param path 	where the file is kept
+	 */
+	public CatalogSnapshotFile(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Returns where the file is kept.
+	 *
+	 * @return the path of the file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Writes a snapshot to the file, replacing the previous one.
+	 *
+	 * @param snapshot 		the snapshot to write
+	 * @param checkedAt 	the database time the snapshot was last checked for changes
+	 * @throws IOException if the file can not be written
+	 */
+	public void write(CatalogSnapshot snapshot, Timestamp checkedAt) throws IOException {
+		Path directory = path.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			channel.position(HEADER_SIZE);
+			CheckedOutputStream checked = new CheckedOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+			DataOutputStream out = new DataOutputStream(checked);
+			snapshot.getStore().writeTo(out);
+			out.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(FORMAT_VERSION);
+			header.putLong(System.currentTimeMillis());
+			header.putLong(checkedAt.getTime());
+			header.putInt(snapshot.size());
+			header.putLong(channel.position() - HEADER_SIZE);
+			header.putLong(checked.getChecksum().getValue());
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		}
+		try {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads the snapshot in the file.
+	 *
+	 * @return the snapshot and the time it was checked for changes, or null if there is no usable file
+	 */
+	public Contents read() {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("file is too short");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("not a catalog snapshot");
+			}
+			int version = buffer.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("format version " + version + ", expected " + FORMAT_VERSION);
+			}
+			long writtenAt = buffer.getLong();
+			if (System.currentTimeMillis() - writtenAt > MAX_AGE_MILLIS) {
+				throw new IOException("written at " + new Timestamp(writtenAt) + ", too old to bring up to date");
+			}
+			Timestamp checkedAt = new Timestamp(buffer.getLong());
+			int films = buffer.getInt();
+			long length = buffer.getLong();
+			long checksum = buffer.getLong();
+			if (length != size - HEADER_SIZE) {
+				throw new IOException("expected " + length + " bytes of films, found " + (size - HEADER_SIZE));
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.duplicate());
+			if (crc.getValue() != checksum) {
+				throw new IOException("checksum does not match");
+			}
+			ColumnarFilmStore store = ColumnarFilmStore.readFrom(buffer);
+			if (store.size() != films) {
+				throw new IOException("expected " + films + " films, found " + store.size());
+			}
+			return new Contents(new CatalogSnapshot(store), checkedAt);
+		} catch (NoSuchFileException e) {
+			return null; // not written yet
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Error reading film catalog snapshot " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * A snapshot read from the file, with the database time it was last checked for changes.
+	 */
+	public static class Contents {
+		private final CatalogSnapshot snapshot;
+		private final Timestamp checkedAt;
+
+		private Contents(CatalogSnapshot snapshot, Timestamp checkedAt) {
+			this.snapshot = snapshot;
+			this.checkedAt = checkedAt;
+		}
+
+		/** @return the snapshot */
+		public CatalogSnapshot getSnapshot() {
+			return snapshot;
+		}
+
+		/** @return the database time the snapshot was last checked for changes */
+		public Timestamp getCheckedAt() {
+			return checkedAt;
+		}
+	}
+}
@@ -0,0 +1,495 @@
+package film;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores films column by column in a few large arrays, instead of as one Film object per film with separate
+ * objects for every text. IDs and release years are primitive int arrays, the text of all titles and of all
+ * descriptions is packed into one UTF-8 byte array each with an array of offsets, and genres are stored as
+ * short codes into a dictionary of the distinct genre names. The store also leaves out the import status
+ * fields of Film, which are never used for catalog films.
+ *
+ * <p>Besides the titles, the store keeps every title normalized for searching, as with
+ * {@link CatalogSnapshot#normalize(String)}, packed the same way. Title searches and comparisons run on these
+ * bytes with {@link #titleContains(int, byte[])} and {@link #compareTitle(int, byte[])}, so a search does not
+ * decode or lower case any title. Since UTF-8 keeps every character a separate byte sequence, a byte sequence
+ * contained in a title is always a whole substring of it, and bytes compare in the order of the characters.
+ *
+ * <p>Searches read single fields of a position, such as {@link #getTitle(int)}, without creating a Film.
+ * {@link #getFilm(int)} decodes all fields of a position into a new Film, which belongs to the caller and is
+ * not kept by the store, so it can be changed, and garbage collected as soon as the caller is done with it.
+ *
+ * <p>A store can not be changed after it has been built. It can be written to a stream with
+ * {@link #writeTo(DataOutputStream)} and read back with {@link #readFrom(ByteBuffer)}, which copies the arrays
+ * in bulk instead of building every film again.
+ *
+ * @author Erica Laub Varpe
+ */
+public class ColumnarFilmStore {
+
+	/** Size of an object header on a 64-bit JVM with compressed class pointers, in bytes */
+	private static final int OBJECT_HEADER = 12;
+
+	/** Size of an array header on a 64-bit JVM with compressed class pointers, in bytes */
+	private static final int ARRAY_HEADER = 16;
+
+	/** Size of an object reference with compressed oops, in bytes */
+	private static final int REFERENCE = 4;
+
+	private final int[] filmIds;
+	private final int[] releaseYears;
+	private final byte[] titleBytes;
+	private final int[] titleOffsets;
+	private final byte[] normalizedTitleBytes;
+	private final int[] normalizedTitleOffsets;
+	private final byte[] descriptionBytes;
+	private final int[] descriptionOffsets;
+	private final BitSet missingDescriptions;
+	private final String[] genreDictionary;
+	private final short[] genreCodes;
+	private final int[] genreOffsets;
+
+	/**
+	 * Builds a store of the given films, in the same order.
+	 *
+	 * @param films 	the films to store
+	 */
+	public ColumnarFilmStore(List<Film> films) {
+		int count = films.size();
+		filmIds = new int[count];
+		releaseYears = new int[count];
+		titleOffsets = new int[count + 1];
+		normalizedTitleOffsets = new int[count + 1];
+		descriptionOffsets = new int[count + 1];
+		missingDescriptions = new BitSet(count);
+		genreOffsets = new int[count + 1];
+
+		byte[][] titles = new byte[count][];
+		byte[][] normalizedTitles = new byte[count][];
+		byte[][] descriptions = new byte[count][];
+		Map<String, Short> dictionary = new HashMap<>();
+		int genreCount = 0;
+		for (int i = 0; i < count; i++) {
+			Film film = films.get(i);
+			filmIds[i] = film.getFilmId();
+			releaseYears[i] = film.getReleaseYear();
+			titles[i] = encode(film.getTitle());
+			titleOffsets[i + 1] = titleOffsets[i] + titles[i].length;
+			normalizedTitles[i] = encode(CatalogSnapshot.normalize(film.getTitle()));
+			normalizedTitleOffsets[i + 1] = normalizedTitleOffsets[i] + normalizedTitles[i].length;
+			if (film.getDescription() == null) {
+				missingDescriptions.set(i);
+				descriptions[i] = new byte[0];
+			} else {
+				descriptions[i] = encode(film.getDescription());
+			}
+			descriptionOffsets[i + 1] = descriptionOffsets[i] + descriptions[i].length;
+			for (String genre : film.getGenres()) {
+				if (!dictionary.containsKey(genre)) {
+					if (dictionary.size() > Short.MAX_VALUE) {
+						throw new IllegalArgumentException("Too many genres for a columnar store: " + dictionary.size());
+					}
+					dictionary.put(genre, (short) dictionary.size());
+				}
+			}
+			genreCount += film.getGenres().size();
+			genreOffsets[i + 1] = genreCount;
+		}
+
+		titleBytes = pack(titles, titleOffsets[count]);
+		normalizedTitleBytes = pack(normalizedTitles, normalizedTitleOffsets[count]);
+		descriptionBytes = pack(descriptions, descriptionOffsets[count]);
+		genreDictionary = new String[dictionary.size()];
+		for (Map.Entry<String, Short> entry : dictionary.entrySet()) {
+			genreDictionary[entry.getValue()] = entry.getKey();
+		}
+		genreCodes = new short[genreCount];
+		for (int i = 0; i < count; i++) {
+			int next = genreOffsets[i];
+			for (String genre : films.get(i).getGenres()) {
+				genreCodes[next++] = dictionary.get(genre);
+			}
+		}
+	}
+
+	private ColumnarFilmStore(int[] filmIds, int[] releaseYears, byte[] titleBytes, int[] titleOffsets,
+			byte[] normalizedTitleBytes, int[] normalizedTitleOffsets, byte[] descriptionBytes,
+			int[] descriptionOffsets, BitSet missingDescriptions, String[] genreDictionary, short[] genreCodes,
+			int[] genreOffsets) {
+		this.filmIds = filmIds;
+		this.releaseYears = releaseYears;
+		this.titleBytes = titleBytes;
+		this.titleOffsets = titleOffsets;
+		this.normalizedTitleBytes = normalizedTitleBytes;
+		this.normalizedTitleOffsets = normalizedTitleOffsets;
+		this.descriptionBytes = descriptionBytes;
+		this.descriptionOffsets = descriptionOffsets;
+		this.missingDescriptions = missingDescriptions;
+		this.genreDictionary = genreDictionary;
+		this.genreCodes = genreCodes;
+		this.genreOffsets = genreOffsets;
+	}
+
+	/**
+	 * Writes the arrays of the store to a stream, each as its length followed by its elements, big-endian.
+	 *
+	 * @param out 	the stream to write to
+	 * @throws IOException if the stream can not be written
+	 */
+	public void writeTo(DataOutputStream out) throws IOException {
+		writeInts(out, filmIds);
+		writeInts(out, releaseYears);
+		writeBytes(out, titleBytes);
+		writeInts(out, titleOffsets);
+		writeBytes(out, normalizedTitleBytes);
+		writeInts(out, normalizedTitleOffsets);
+		writeBytes(out, descriptionBytes);
+		writeInts(out, descriptionOffsets);
+		long[] missing = missingDescriptions.toLongArray();
+		ByteBuffer missingBuffer = ByteBuffer.allocate(missing.length * 8);
+		missingBuffer.asLongBuffer().put(missing);
+		out.writeInt(missing.length);
+		out.write(missingBuffer.array());
+		out.writeInt(genreDictionary.length);
+		for (String genre : genreDictionary) {
+			writeBytes(out, encode(genre));
+		}
+		ByteBuffer codeBuffer = ByteBuffer.allocate(genreCodes.length * 2);
+		codeBuffer.asShortBuffer().put(genreCodes);
+		out.writeInt(genreCodes.length);
+		out.write(codeBuffer.array());
+		writeInts(out, genreOffsets);
+	}
+
+	/**
+	 * Reads a store written by {@link #writeTo(DataOutputStream)}, starting at the position of the buffer.
+	 * The arrays are copied out of the buffer, so the store does not depend on it afterwards.
+	 *
+	 * @param buffer 	the buffer to read from; its position is moved past the store
+	 * @return the store
+	 * @throws IllegalArgumentException if the buffer does not hold a consistent store
+	 */
+	public static ColumnarFilmStore readFrom(ByteBuffer buffer) {
+		int[] filmIds = readInts(buffer);
+		int[] releaseYears = readInts(buffer);
+		byte[] titleBytes = readBytes(buffer);
+		int[] titleOffsets = readInts(buffer);
+		byte[] normalizedTitleBytes = readBytes(buffer);
+		int[] normalizedTitleOffsets = readInts(buffer);
+		byte[] descriptionBytes = readBytes(buffer);
+		int[] descriptionOffsets = readInts(buffer);
+		long[] missing = new long[readLength(buffer, 8)];
+		buffer.asLongBuffer().get(missing);
+		buffer.position(buffer.position() + missing.length * 8);
+		String[] genreDictionary = new String[readLength(buffer, 4)];
+		for (int i = 0; i < genreDictionary.length; i++) {
+			genreDictionary[i] = new String(readBytes(buffer), StandardCharsets.UTF_8);
+		}
+		short[] genreCodes = new short[readLength(buffer, 2)];
+		buffer.asShortBuffer().get(genreCodes);
+		buffer.position(buffer.position() + genreCodes.length * 2);
+		int[] genreOffsets = readInts(buffer);
+
+		int count = filmIds.length;
+		if (releaseYears.length != count || titleOffsets.length != count + 1 || normalizedTitleOffsets.length != count + 1
+				|| descriptionOffsets.length != count + 1 || genreOffsets.length != count + 1
+				|| titleOffsets[count] != titleBytes.length || normalizedTitleOffsets[count] != normalizedTitleBytes.length
+				|| descriptionOffsets[count] != descriptionBytes.length || genreOffsets[count] != genreCodes.length) {
+			throw new IllegalArgumentException("Columnar store arrays do not match for " + count + " films");
+		}
+		for (short code : genreCodes) {
+			if (code < 0 || code >= genreDictionary.length) {
+				throw new IllegalArgumentException("Unknown genre code " + code);
+			}
+		}
+		return new ColumnarFilmStore(filmIds, releaseYears, titleBytes, titleOffsets, normalizedTitleBytes,
+				normalizedTitleOffsets, descriptionBytes, descriptionOffsets, BitSet.valueOf(missing), genreDictionary,
+				genreCodes, genreOffsets);
+	}
+
+	/**
+	 * Returns the number of films in the store.
+	 *
+	 * @return the number of films
+	 */
+	public int size() {
+		return filmIds.length;
+	}
+
+	/**
+	 * Decodes the film at a position into a new Film.
+	 *
+	 * @param position 	the position of the film
+	 * @return a copy of the film
+	 */
+	public Film getFilm(int position) {
+		if (position < 0 || position >= filmIds.length) {
+			throw new IndexOutOfBoundsException("No film at position " + position + ", the store has " + filmIds.length);
+		}
+		Film film = new Film(getTitle(position), getDescription(position), releaseYears[position], getGenres(position));
+		film.setFilmId(filmIds[position]);
+		return film;
+	}
+
+	/**
+	 * Returns all films of the store as a list that decodes a new Film whenever an element is read.
+	 *
+	 * @return an unmodifiable list of all films
+	 */
+	public List<Film> getFilms() {
+		return new AbstractList<Film>() {
+			@Override
+			public Film get(int position) {
+				return getFilm(position);
+			}
+
+			@Override
+			public int size() {
+				return filmIds.length;
+			}
+		};
+	}
+
+	/**
+	 * Returns the ID of the film at a position.
+	 *
+	 * @param position 	the position of the film
+	 * @return the film ID
+	 */
+	public int getFilmId(int position) {
+		return filmIds[position];
+	}
+
+	/**
+	 * Returns the release year of the film at a position.
+	 *
+	 * @param position 	the position of the film
+	 * @return the release year
+	 */
+	public int getReleaseYear(int position) {
+		return releaseYears[position];
+	}
+
+	/**
+	 * Decodes the title of the film at a position.
+	 *
+	 * @param position 	the position of the film
+	 * @return the title
+	 */
+	public String getTitle(int position) {
+		return decode(titleBytes, titleOffsets, position);
+	}
+
+	/**
+	 * Decodes the normalized title of the film at a position.
+	 *
+	 * @param position 	the position of the film
+	 * @return the title as normalized by {@link CatalogSnapshot#normalize(String)}
+	 */
+	public String getNormalizedTitle(int position) {
+		return decode(normalizedTitleBytes, normalizedTitleOffsets, position);
+	}
+
+	/**
+	 * Returns whether the normalized title of the film at a position contains a text.
+	 *
+	 * @param position 	the position of the film
+	 * @param text 		the UTF-8 bytes of a normalized text
+	 * @return true if the text is part of the normalized title
+	 */
+	public boolean titleContains(int position, byte[] text) {
+		int start = normalizedTitleOffsets[position];
+		int last = normalizedTitleOffsets[position + 1] - text.length;
+		if (text.length == 0) {
+			return true;
+		}
+		byte first = text[0];
+		for (int i = start; i <= last; i++) {
+			if (normalizedTitleBytes[i] != first) {
+				continue;
+			}
+			int j = 1;
+			while (j < text.length && normalizedTitleBytes[i + j] == text[j]) {
+				j++;
+			}
+			if (j == text.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares the normalized title of the film at a position with a normalized title, byte by byte as unsigned
+	 * values, which is the order of their characters.
+	 *
+	 * @param position 	the position of the film
+	 * @param title 	the UTF-8 bytes of a normalized title
+	 * @return a negative number, zero or a positive number if the title of the film comes before, is equal to or
+	 *         comes after the given title
+	 */
+	public int compareTitle(int position, byte[] title) {
+		int start = normalizedTitleOffsets[position];
+		int length = normalizedTitleOffsets[position + 1] - start;
+		int common = Math.min(length, title.length);
+		for (int i = 0; i < common; i++) {
+			int order = Integer.compare(normalizedTitleBytes[start + i] & 0xFF, title[i] & 0xFF);
+			if (order != 0) {
+				return order;
+			}
+		}
+		return Integer.compare(length, title.length);
+	}
+
+	/**
+	 * Decodes the description of the film at a position.
+	 *
+	 * @param position 	the position of the film
+	 * @return the description, or null if the film was stored without one
+	 */
+	public String getDescription(int position) {
+		return missingDescriptions.get(position) ? null : decode(descriptionBytes, descriptionOffsets, position);
+	}
+
+	/**
+	 * Returns the genres of the film at a position.
+	 *
+	 * @param position 	the position of the film
+	 * @return an unmodifiable list of the genre names
+	 */
+	public List<String> getGenres(int position) {
+		int start = genreOffsets[position];
+		int end = genreOffsets[position + 1];
+		String[] genres = new String[end - start];
+		for (int i = start; i < end; i++) {
+			genres[i - start] = genreDictionary[genreCodes[i]];
+		}
+		return Collections.unmodifiableList(Arrays.asList(genres));
+	}
+
+	/**
+	 * Estimates the heap used by the store.
+	 *
+	 * @return the estimated size of the store in bytes
+	 */
+	public long getEstimatedBytes() {
+		long bytes = OBJECT_HEADER + 12 * REFERENCE;
+		bytes += arrayBytes(filmIds.length, 4) + arrayBytes(releaseYears.length, 4);
+		bytes += arrayBytes(titleBytes.length, 1) + arrayBytes(titleOffsets.length, 4);
+		bytes += arrayBytes(normalizedTitleBytes.length, 1) + arrayBytes(normalizedTitleOffsets.length, 4);
+		bytes += arrayBytes(descriptionBytes.length, 1) + arrayBytes(descriptionOffsets.length, 4);
+		bytes += OBJECT_HEADER + REFERENCE + 8 + arrayBytes(missingDescriptions.size() / 64, 8);
+		bytes += arrayBytes(genreDictionary.length, REFERENCE);
+		for (String genre : genreDictionary) {
+			bytes += stringBytes(genre);
+		}
+		bytes += arrayBytes(genreCodes.length, 2) + arrayBytes(genreOffsets.length, 4);
+		return bytes;
+	}
+
+	/**
+	 * Estimates the heap the given films use when they are held as an ArrayList of Film objects, the way the
+	 * FilmManager searches return them: one Film object with its own strings and genre list per film.
+	 *
+	 * @param films 	the films to estimate
+	 * @return the estimated size of the list and its films in bytes
+	 */
+	public static long estimateListBytes(Collection<Film> films) {
+		long bytes = OBJECT_HEADER + 2 * 4 + REFERENCE + arrayBytes(films.size(), REFERENCE);
+		long filmObject = align(OBJECT_HEADER + 4 + 4 + 1 + 4 * REFERENCE);
+		long genreList = align(OBJECT_HEADER + 2 * REFERENCE) + align(OBJECT_HEADER + 2 * 4 + REFERENCE);
+		for (Film film : films) {
+			bytes += filmObject + stringBytes(film.getTitle()) + stringBytes(film.getDescription());
+			bytes += genreList + arrayBytes(film.getGenres().size(), REFERENCE);
+			for (String genre : film.getGenres()) {
+				bytes += stringBytes(genre);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Estimates the size of a string with compact strings (Java 9 and later), including its byte array.
+	 */
+	private static long stringBytes(String text) {
+		if (text == null) {
+			return 0;
+		}
+		boolean latin1 = text.chars().allMatch(c -> c < 256);
+		return align(OBJECT_HEADER + 4 + 1 + 1 + REFERENCE) + arrayBytes(text.length(), latin1 ? 1 : 2);
+	}
+
+	private static long arrayBytes(int length, int elementSize) {
+		return align(ARRAY_HEADER + (long) length * elementSize);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+		buffer.asIntBuffer().put(values);
+		out.writeInt(values.length);
+		out.write(buffer.array());
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+		out.writeInt(values.length);
+		out.write(values);
+	}
+
+	private static int[] readInts(ByteBuffer buffer) {
+		int[] values = new int[readLength(buffer, 4)];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + values.length * 4);
+		return values;
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer) {
+		byte[] values = new byte[readLength(buffer, 1)];
+		buffer.get(values);
+		return values;
+	}
+
+	/**
+	 * Reads the length of an array and checks that the buffer holds that many elements of the given size.
+	 */
+	private static int readLength(ByteBuffer buffer, int elementSize) {
+		int length = buffer.getInt();
+		if (length < 0 || (long) length * elementSize > buffer.remaining()) {
+			throw new IllegalArgumentException("Array length " + length + " does not fit in the remaining "
+					+ buffer.remaining() + " bytes");
+		}
+		return length;
+	}
+
+	private static byte[] encode(String text) {
+		return text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] pack(byte[][] values, int length) {
+		byte[] packed = new byte[length];
+		int offset = 0;
+		for (byte[] value : values) {
+			System.arraycopy(value, 0, packed, offset, value.length);
+			offset += value.length;
+		}
+		return packed;
+	}
+
+	private static String decode(byte[] bytes, int[] offsets, int position) {
+		return new String(bytes, offsets[position], offsets[position + 1] - offsets[position], StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,184 @@
+package film;
+
+import com.opencsv.CSVParser;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads the rows of a CSV file one at a time while keeping track of the byte offset and the number of the
+ * row, so that an import can later continue from the middle of the file. Rows are split into fields by the
+ * opencsv CSVParser with its default settings, like CSVReader, and quoted fields may span several lines.
+ *
+ * <p>The file is read in the default character set of the platform, like a FileReader. Lines are found by
+ * scanning a buffer of the file for line feeds, and each line is decoded straight from the buffer unless it
+ * spans two reads.
+ *
+ * @author Erica Laub Varpe
+ */
+class CsvRowReader implements Closeable {
+
+	private final InputStream in;
+	private final Charset charset = Charset.defaultCharset();
+	private final CSVParser parser = new CSVParser();
+
+	/** Bytes read from the file, of which those from position to limit have not been used yet */
+	private final byte[] buffer = new byte[1 << 16];
+	private int position;
+	private int limit;
+
+	/** The start of a line that spans two reads of the buffer */
+	private byte[] line = new byte[256];
+
+	/** Number of bytes of the file read, up to the end of the last line */
+	private long offset;
+
+	/** Number of data rows read from the start of the file */
+	private long rowNumber;
+
+	/**
+	 * Opens a CSV file at the start of a row.
+	 *
+	 * @param filePath 	the path of the file
+	 * @param offset 	the byte offset of the row to start at, or 0 to start at the first row after the header
+	 * @param rowNumber the number of data rows before that offset
+	 * @throws IOException if the file can not be opened
+	 */
+	CsvRowReader(String filePath, long offset, long rowNumber) throws IOException {
+		FileInputStream file = new FileInputStream(filePath);
+		try {
+			file.getChannel().position(offset);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+		this.in = file;
+		this.offset = offset;
+		this.rowNumber = rowNumber;
+		if (offset == 0) {
+			readLine(); // skip header
+		}
+	}
+
+	/**
+	 * Reads the next row.
+	 *
+	 * @return the fields of the row, or null at the end of the file
+	 * @throws IOException if the file can not be read, or ends inside a quoted field
+	 */
+	String[] readRow() throws IOException {
+		String text = readLine();
+		if (text == null) {
+			return null;
+		}
+		String[] row = parser.parseLineMulti(text);
+		while (parser.isPending()) {
+			text = readLine();
+			if (text == null) {
+				throw new IOException("Unterminated quoted field in row " + (rowNumber + 1));
+			}
+			String[] rest = parser.parseLineMulti(text);
+			String[] combined = Arrays.copyOf(row, row.length + rest.length);
+			System.arraycopy(rest, 0, combined, row.length, rest.length);
+			row = combined;
+		}
+		rowNumber++;
+		return row;
+	}
+
+	/**
+	 * Returns the byte offset just after the last row read, where reading can continue later.
+	 *
+	 * @return the byte offset
+	 */
+	long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of data rows read from the start of the file, including rows skipped by
+	 * starting at an offset.
+	 *
+	 * @return the number of the last row read
+	 */
+	long getRowNumber() {
+		return rowNumber;
+	}
+
+	/**
+	 * Reads one line without its line break, or returns null at the end of the file.
+	 */
+	private String readLine() throws IOException {
+		int length = 0; // bytes of the line copied to line, if it spans two reads
+		while (true) {
+			if (position == limit && !fill()) {
+				return length == 0 ? null : decode(line, 0, length);
+			}
+			int start = position;
+			int end = start;
+			while (end < limit && buffer[end] != '\n') {
+				end++;
+			}
+			if (end < limit) {
+				position = end + 1;
+				offset += position - start;
+				if (length == 0) {
+					return decode(buffer, start, end - start);
+				}
+				line = append(line, length, buffer, start, end - start);
+				return decode(line, 0, length + end - start);
+			}
+			line = append(line, length, buffer, start, end - start);
+			length += end - start;
+			offset += end - start;
+			position = end;
+		}
+	}
+
+	/**
+	 * Reads the next bytes of the file into the buffer.
+	 *
+	 * @return false at the end of the file
+	 */
+	private boolean fill() throws IOException {
+		int read;
+		do {
+			read = in.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		position = 0;
+		limit = Math.max(read, 0);
+		return read > 0;
+	}
+
+	/**
+	 * Decodes the bytes of a line, without the carriage return of a CRLF line break.
+	 */
+	private String decode(byte[] bytes, int start, int length) {
+		if (length > 0 && bytes[start + length - 1] == '\r') {
+			length--;
+		}
+		return new String(bytes, start, length, charset);
+	}
+
+	/**
+	 * Copies bytes to the end of the first length bytes of an array, growing the array if they do not fit.
+	 *
+	 * @return the array, or a larger copy of it
+	 */
+	private static byte[] append(byte[] array, int length, byte[] bytes, int start, int count) {
+		if (length + count > array.length) {
+			array = Arrays.copyOf(array, Math.max(array.length * 2, length + count));
+		}
+		System.arraycopy(bytes, start, array, length, count);
+		return array;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
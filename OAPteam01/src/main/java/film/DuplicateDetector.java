@@ -0,0 +1,180 @@
+package film;
+
+import db.FilmDAO;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the films of an import that are already in the database, or that appeared earlier in the same file.
+ * Films are compared by their normalized title and release year; the title is trimmed and compared without
+ * regard to case, like the default collation of the film table.
+ *
+ * <p>When the import starts, the key of every film in the database is added to a {@link BloomFilter}, and the
+ * key of every imported film is added as it is checked. A film whose key is not in the filter is certainly
+ * new. Only the films the filter may have seen before are looked up in the database, with one query per
+ * chunk of films, so an import of new films costs no queries at all. The keys are taken from the shared
+ * {@link CatalogFilmHandler} when it is loaded and holds as many films as the database, and are only read
+ * from the database otherwise.
+ *
+ * <p>Films that have been accepted but can not be found in the database yet, because they wait in a batch
+ * or have not been committed, are kept as pending keys until {@link #inserted(List)} is called for them once
+ * their transaction has been committed.
+ * A film is only accepted if it can add its key to the pending keys, so a film that appears twice in the file
+ * is skipped even when both rows are checked at the same time by different threads.
+ *
+ * @author Erica Laub Varpe
+ */
+class DuplicateDetector {
+
+	/** Reason recorded for a film that is already in the database */
+	static final String IN_DATABASE = "Already in the database";
+
+	/** Reason recorded for a film that appeared earlier in the file */
+	static final String IN_FILE = "Duplicate of an earlier row in the file";
+
+	/** Share of new films the filter may take for duplicates, each costing a lookup in the database */
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+
+	/** Rough length of a row of a CSV file in bytes, to guess how many films a file holds */
+	private static final int ESTIMATED_ROW_BYTES = 32;
+
+	/** The filter is never sized for more keys than this, to bound its memory at about 20 MB */
+	private static final long MAX_EXPECTED_KEYS = 1L << 24;
+
+	private final BloomFilter filter;
+
+	/** Keys of the films accepted but not inserted yet */
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	private DuplicateDetector(BloomFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Creates a detector that knows every film in the database, with a filter sized for those films and about
+	 * as many films as the rest of the file to import holds. The films are taken from the shared catalog if
+	 * it is loaded, see {@link #load(FilmDAO, ImportCheckpoint, CatalogFilmHandler)}.
+	 *
+	 * @param filmDAO 	the DAO to read the films with
+	 * @param start 	the checkpoint the import starts at
+	 * @return the detector
+	 * @throws SQLException if the films can not be read
+	 */
+	static DuplicateDetector load(FilmDAO filmDAO, ImportCheckpoint start) throws SQLException {
+		return load(filmDAO, start, CatalogFilmHandler.getSharedCatalog());
+	}
+
+	/**
+	 * Creates a detector that knows every film in the database. If the catalog is loaded, it is brought up to
+	 * date and its films are used, which saves reading the title of every film from the database. A catalog
+	 * that does not hold as many films as the database, because it could not be brought up to date or some
+	 * films have no genre, would let duplicates through, so the films are then read from the database.
+	 *
+	 * @param filmDAO 	the DAO to read the films with
+	 * @param start 	the checkpoint the import starts at
+	 * @param catalog 	the catalog to take the films from if it is loaded
+	 * @return the detector
+	 * @throws SQLException if the films can not be read
+	 */
+	static DuplicateDetector load(FilmDAO filmDAO, ImportCheckpoint start, CatalogFilmHandler catalog)
+			throws SQLException {
+		int filmCount = filmDAO.countFilms();
+		long remainingBytes = Math.max(0, new File(start.getFilePath()).length() - start.getOffset());
+		long expectedKeys = Math.min(MAX_EXPECTED_KEYS, filmCount + remainingBytes / ESTIMATED_ROW_BYTES);
+		BloomFilter filter = new BloomFilter(expectedKeys, FALSE_POSITIVE_RATE);
+
+		ColumnarFilmStore store = null;
+		if (catalog.isLoaded()) {
+			catalog.refreshChanges();
+			store = catalog.getSnapshot().getStore();
+		}
+		if (store != null && store.size() == filmCount) {
+			for (int i = 0; i < store.size(); i++) {
+				filter.put(key(store.getTitle(i), store.getReleaseYear(i)));
+			}
+		} else {
+			filmDAO.forEachTitle((title, releaseYear) -> filter.put(key(title, releaseYear)));
+		}
+		return new DuplicateDetector(filter);
+	}
+
+	/**
+	 * Checks a chunk of films, records the duplicates as skipped and returns the others, which become pending.
+	 *
+	 * @param films 	the films to check, in file order
+	 * @param filmDAO 	the DAO to confirm possible duplicates with
+	 * @param result 	the import result to record skipped films in
+	 * @return the films that are not duplicates, in the same order
+	 * @throws SQLException if possible duplicates can not be looked up
+	 */
+	List<Film> skipDuplicates(List<Film> films, FilmDAO filmDAO, ImportResult result) throws SQLException {
+		List<Film> unique = new ArrayList<>(films.size());
+		Set<String> candidateTitles = new LinkedHashSet<>();
+		for (Film film : films) {
+			String key = key(film);
+			boolean seen = filter.mightContain(key);
+			filter.put(key);
+			if (!pending.add(key)) {
+				result.addSkippedDuplicate(film, IN_FILE);
+				continue;
+			}
+			unique.add(film);
+			if (seen) {
+				candidateTitles.add(film.getTitle().trim());
+			}
+		}
+		if (candidateTitles.isEmpty()) {
+			return unique;
+		}
+
+		Set<String> existing = new HashSet<>();
+		for (Film film : filmDAO.findFilmsByTitle(candidateTitles)) {
+			existing.add(key(film));
+		}
+		List<Film> accepted = new ArrayList<>(unique.size());
+		for (Film film : unique) {
+			String key = key(film);
+			if (existing.contains(key)) {
+				pending.remove(key);
+				result.addSkippedDuplicate(film, IN_DATABASE);
+			} else {
+				accepted.add(film);
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Forgets the pending keys of films once the transaction they were inserted in, or failed to insert in, has
+	 * been committed, so that every connection that confirms duplicates can find them in the database.
+	 *
+	 * @param films 	films returned by {@link #skipDuplicates(List, FilmDAO, ImportResult)}
+	 */
+	void inserted(List<Film> films) {
+		for (Film film : films) {
+			pending.remove(key(film));
+		}
+	}
+
+	/**
+	 * Returns the key of a film, see {@link #key(String, int)}.
+	 */
+	static String key(Film film) {
+		return key(film.getTitle(), film.getReleaseYear());
+	}
+
+	/**
+	 * Returns the key films are compared by: the release year and the trimmed, lower case title.
+	 */
+	static String key(String title, int releaseYear) {
+		return releaseYear + ":" + title.trim().toLowerCase(Locale.ROOT);
+	}
+}
@@ -1,17 +1,23 @@
 package film;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * This class represents a film with attributes such as title, description, release year, and genre.
+ * This class represents a film with attributes such as title, description, release year, and genres.
  * It provides getter and setter methods to access and modify the film's attributes.
+ * A film can belong to several genres; films read from a CSV import have exactly one.
  * 
  * @author Erica Laub Varpe
  */
 public class Film {
 	
+    private int filmId;
     private String title;
     private String description;
     private int releaseYear;
-    private String genre;
+    private List<String> genres;
     private boolean importSuccess;
     private String failureReason;
 
@@ -21,14 +27,44 @@ public class Film {
 	 * @param title 		the title of the film
 	 * @param description 	the description of the film
 	 * @param releaseYear	the year the film was released
-	 * @param genre 		the genre of the film
+	 * @param genre 		the genre of the film, or null if it has none
 	 */
     public Film(String title, String description, int releaseYear, String genre) {
+        this(title, description, releaseYear, genreList(genre));
+    }
+
+	/**
+	 * Constructs a new Film object with the specified title, description, release year, and genres.
+	 * 
+	 * @param title 		the title of the film
+	 * @param description 	the description of the film
+	 * @param releaseYear	the year the film was released
+	 * @param genres 		the genres of the film
+	 */
+    public Film(String title, String description, int releaseYear, List<String> genres) {
         this.title = title;
         this.description = description;
         this.releaseYear = releaseYear;
-        this.genre = genre;
+        this.genres = Collections.unmodifiableList(new ArrayList<>(genres));
     }
+	/**
+	 * Returns the database ID of the film.
+	 * 
+	 * @return the film ID, or 0 if the film has not been stored in the database
+	 */
+	public int getFilmId() {
+		return filmId;
+	}
+
+	/**
+	 * Sets the database ID of the film.
+	 * 
+	 * @param filmId the film ID to set
+	 */
+	public void setFilmId(int filmId) {
+		this.filmId = filmId;
+	}
+
 	/**
 	 * Returns the title of the film.
 	 * 
@@ -84,21 +120,46 @@ public class Film {
 	}
 
 	/**
-	 * Returns the genre of the film.
+	 * Returns the genre of the film. For a film with several genres, this is all of them separated by commas.
 	 * 
 	 * @return the genre of the film
 	 */
 	public String getGenre() {
-		return genre;
+		return String.join(", ", genres);
 	}
 
 	/**
-	 * Sets the genre of the film.
+	 * Sets the genre of the film, replacing any genres it had.
 	 * 
-	 * @param genre the genre to set
+	 * @param genre the genre to set, or null to remove all genres
 	 */
 	public void setGenre(String genre) {
-		this.genre = genre;
+		this.genres = genreList(genre);
+	}
+
+	/**
+	 * Returns a list of the given genre, which is empty for a null genre, so that getGenre() never returns "null".
+	 */
+	private static List<String> genreList(String genre) {
+		return genre == null ? Collections.<String>emptyList() : Collections.singletonList(genre);
+	}
+
+	/**
+	 * Returns the genres of the film.
+	 * 
+	 * @return an unmodifiable list of the film's genres
+	 */
+	public List<String> getGenres() {
+		return genres;
+	}
+
+	/**
+	 * Sets the genres of the film.
+	 * 
+	 * @param genres the genres to set
+	 */
+	public void setGenres(List<String> genres) {
+		this.genres = Collections.unmodifiableList(new ArrayList<>(genres));
 	}
 	
     /**
@@ -140,13 +201,13 @@ public class Film {
 	/**
 	 * Returns a string representation of the Film object.
 	 * 
-	 * @return a string containing the title, description, release year, and genre of the film
+	 * @return a string containing the title, description, release year, and genres of the film
 	 */
 	@Override
 	public String toString() {
 		return "Title: '" + title + '\'' +
                 "\nDescription: '" + description + '\'' +
                 "\nRelease year: " + releaseYear +
-                "\nGenre: '" + genre + '\'' + "\n";
+                "\nGenre: '" + getGenre() + '\'' + "\n";
 	}
 }
@@ -0,0 +1,53 @@
+package film;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface for finding the films that have changed in the database since a point in time, so that a copy of
+ * the catalog can be brought up to date without reading every film again.
+ *
+ * @author Erica Laub Varpe
+ */
+public interface FilmChangeLog {
+    /**
+     * Returns the current time of the database, to start tracking changes from.
+     *
+     * @return the current database time
+     * @throws SQLException if the database can not be reached
+     */
+    Timestamp getCurrentTime() throws SQLException;
+
+    /**
+     * Retrieves the films, without descriptions, that have been added or changed since the given time,
+     * including films whose genres have changed. The lookup by time needs an index on the last_update column
+     * of film and of film_category to avoid reading every row; see {@link FilmManager}.
+     *
+     * @param since 	the time to look for changes from, inclusive
+     * @return the changed films, and the database time the changes were read at
+     * @throws SQLException if the changes can not be read
+     */
+    FilmChanges getChangesSince(Timestamp since) throws SQLException;
+
+    /**
+     * Retrieves the genres of every film in the database that has any. Deleting a film or one of its
+     * film_category rows leaves no changed last_update behind, so this is how such changes are found.
+     *
+     * @return the genres of each film by film ID, every list sorted by genre name like those of the films
+     * @throws SQLException if the genres can not be read
+     */
+    Map<Integer, List<String>> getAllFilmGenres() throws SQLException;
+
+    /**
+     * Retrieves the films with the given IDs, without descriptions, for the films that a copy of the catalog
+     * has missed, for example because they changed before the time it looked for changes from.
+     *
+     * @param filmIds 	the IDs of the films
+     * @return the films that exist and have genres, in no particular order
+     * @throws SQLException if the films can not be read
+     */
+    List<Film> getFilmsById(Collection<Integer> filmIds) throws SQLException;
+}
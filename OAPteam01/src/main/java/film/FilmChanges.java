@@ -0,0 +1,47 @@
+package film;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The films read by {@link FilmChangeLog#getChangesSince(Timestamp)}, and the database time they were read at,
+ * which is where the next check for changes continues from.
+ *
+ * @author Erica Laub Varpe
+ */
+public class FilmChanges {
+
+    private final List<Film> films;
+    private final Timestamp checkedAt;
+
+    /**
+     * Creates a new set of changes.
+     *
+     * @param films 		the added or changed films
+     * @param checkedAt 	the database time just before the changes were read
+     */
+    public FilmChanges(List<Film> films, Timestamp checkedAt) {
+        this.films = Collections.unmodifiableList(new ArrayList<>(films));
+        this.checkedAt = checkedAt;
+    }
+
+    /**
+     * Returns the added or changed films.
+     *
+     * @return an unmodifiable list of films
+     */
+    public List<Film> getFilms() {
+        return films;
+    }
+
+    /**
+     * Returns the database time just before the changes were read.
+     *
+     * @return the time to check for the next changes from
+     */
+    public Timestamp getCheckedAt() {
+        return checkedAt;
+    }
+}
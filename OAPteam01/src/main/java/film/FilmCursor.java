@@ -0,0 +1,59 @@
+package film;
+
+/**
+ * Position in a paged film listing, used for keyset pagination.
+ * Films are listed ordered by title and then by film ID, so a cursor holds the title and ID of the last
+ * film on a page. The next page starts right after that film, which lets the database seek directly to it
+ * through the title index instead of skipping over all earlier rows as OFFSET would.
+ * 
+ * @author Erica Laub Varpe
+ */
+public class FilmCursor {
+	
+    private final String title;
+    private final int filmId;
+
+    /**
+     * Creates a cursor positioned after the given film.
+     * 
+     * @param title 	the title of the last film seen
+     * @param filmId 	the ID of the last film seen
+     */
+    public FilmCursor(String title, int filmId) {
+        this.title = title;
+        this.filmId = filmId;
+    }
+
+    /**
+     * Creates a cursor positioned after the given film.
+     * 
+     * @param film 	the last film seen
+     * @return a cursor pointing after the film
+     */
+    public static FilmCursor after(Film film) {
+        return new FilmCursor(film.getTitle(), film.getFilmId());
+    }
+
+    /**
+     * Returns the title of the last film seen, which is the sort key of the listing.
+     * 
+     * @return the title of the last film seen
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the ID of the last film seen, which breaks ties between films with the same title.
+     * 
+     * @return the ID of the last film seen
+     */
+    public int getFilmId() {
+        return filmId;
+    }
+
+    @Override
+    public String toString() {
+        return "FilmCursor[title='" + title + "', filmId=" + filmId + "]";
+    }
+}
@@ -1,6 +1,9 @@
 package film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Interface defining the core film data operations.
@@ -17,6 +20,39 @@ public interface FilmHandler {
      */
     List<Film> getAllFilms();
 
+    /**
+     * Streams all films available in the database. Implementations backed by a database read the films
+     * one row at a time, so memory use does not grow with the size of the catalog.
+     * The stream holds database resources and should be closed, preferably with try-with-resources.
+     * If the films can not all be read, the stream throws an unchecked exception instead of ending early.
+     *
+     * @return a stream of all films; by default a stream over {@link #getAllFilms()}
+     */
+    default Stream<Film> streamAllFilms() {
+        return getAllFilms().stream();
+    }
+
+    /**
+     * Streams all films without their descriptions. Descriptions are the largest part of a film, so listings
+     * that only show the descriptions of some films should load those with {@link #getDescriptions(Collection)}.
+     * The stream should be closed like the one of {@link #streamAllFilms()}.
+     *
+     * @return a stream of all films, whose descriptions may be null; by default {@link #streamAllFilms()}
+     */
+    default Stream<Film> streamFilmSummaries() {
+        return streamAllFilms();
+    }
+
+    /**
+     * Retrieves the descriptions of the given films, for example of the rows of a listing that have become visible.
+     *
+     * @param filmIds 	the IDs of the films
+     * @return a map from film ID to description, leaving out films that do not exist or have no description
+     * @throws RuntimeException if the descriptions can not be read, so that callers can tell a failed lookup
+     *         from films without descriptions and try again
+     */
+    Map<Integer, String> getDescriptions(Collection<Integer> filmIds);
+
     /**
      * Searches for films based on a partial title provided by the user. This allows for finding films
      * even if only part of the title is known.
@@ -41,4 +77,62 @@ public interface FilmHandler {
      * @return a list of films released in the specified year, or an empty list if no matches are found and a pop up saying it doest exist in the database.
      */
     List<Film> getFilmByReleaseYear(int releaseYear);
+
+    /**
+     * Searches the titles and descriptions of films for the given words, using the full-text index of the database.
+     * Films that match more of the words, or match rarer words, are ranked higher.
+     *
+     * @param searchText 	the words to search for, in natural language
+     * @param maxResults 	the maximum number of films to return
+     * @return the best matching films, most relevant first, or an empty list if no film matches
+     */
+    List<Film> searchFullText(String searchText, int maxResults);
+
+    /**
+     * Retrieves the films matching a combination of criteria, such as a title fragment, genres, a range of
+     * release years and a rating, in one search. Only the criteria that are set are applied.
+     *
+     * @param criteria 	the criteria the films must match
+     * @return the matching films, sorted and limited as the criteria specify, or an empty list if no film matches
+     */
+    List<Film> findFilms(FilmSearchCriteria criteria);
+
+    /**
+     * Retrieves one page of all films, ordered by title. Pass the cursor of the previous page to get the next one.
+     *
+     * @param after 	the cursor returned with the previous page, or null for the first page
+     * @param pageSize 	the maximum number of films on the page
+     * @return the page of films without their descriptions, which tells whether more films follow
+     */
+    FilmPage getAllFilms(FilmCursor after, int pageSize);
+
+    /**
+     * Retrieves one page of the films whose titles contain the search term, ordered by title.
+     *
+     * @param partialTitle	a substring of the film title to search for; it is not case sensitive.
+     * @param after 		the cursor returned with the previous page, or null for the first page
+     * @param pageSize 		the maximum number of films on the page
+     * @return the page of films without their descriptions, which tells whether more films follow
+     */
+    FilmPage getFilmByTitle(String partialTitle, FilmCursor after, int pageSize);
+
+    /**
+     * Retrieves one page of the films of a genre, ordered by title.
+     *
+     * @param genre 	the genre by which to filter films; it is not case sensitive.
+     * @param after 	the cursor returned with the previous page, or null for the first page
+     * @param pageSize 	the maximum number of films on the page
+     * @return the page of films without their descriptions, which tells whether more films follow
+     */
+    FilmPage getFilmByGenre(String genre, FilmCursor after, int pageSize);
+
+    /**
+     * Retrieves one page of the films released in a given year, ordered by title.
+     *
+     * @param releaseYear 	the year to filter films by, in YYYY format
+     * @param after 		the cursor returned with the previous page, or null for the first page
+     * @param pageSize 		the maximum number of films on the page
+     * @return the page of films without their descriptions, which tells whether more films follow
+     */
+    FilmPage getFilmByReleaseYear(int releaseYear, FilmCursor after, int pageSize);
 }
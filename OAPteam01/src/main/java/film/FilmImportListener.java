@@ -0,0 +1,29 @@
+package film;
+
+import java.util.List;
+
+/**
+ * Interface for components that need to know when films have been added to the database
+ * by an import, for example to keep an in-memory copy of the catalog up to date.
+ *
+ * @author Erica Laub Varpe
+ */
+public interface FilmImportListener {
+    /**
+     * Called after an import has been committed.
+     *
+     * @param films The films that were imported, with their film IDs set
+     */
+    void filmsImported(List<Film> films);
+
+    /**
+     * Called instead of {@link #filmsImported(List)} after an import has been committed that added more
+     * films than an {@link ImportResult} lists. The imported films have to be read back from the database.
+     * Does nothing by default; listeners that keep a copy of the catalog, like {@link CachingFilmHandler} and
+     * {@link CatalogFilmHandler}, override it.
+     *
+     * @param filmCount The number of films that were imported
+     */
+    default void filmsImported(int filmCount) {
+    }
+}
@@ -1,19 +1,48 @@
 package film;
 
+import db.FilmBulkLoader;
 import db.FilmDAO;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
 import db.DatabaseConnection;
 
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Service class responsible for coordinating the import of films from CSV files into the database.
  * This class handles CSV file reading, data validation, and coordinates with FilmDAO for database operations.
  * 
+ * <p>The file is streamed: rows are read one at a time and inserted as soon as a batch is full, so the
+ * memory an import needs does not grow with the size of the file, and the first films are written
+ * before the rest of the file has been read.
+ * 
+ * <p>By default one thread reads, validates and inserts the films in a single transaction. With a
+ * worker count above 1 the import runs as an {@link ImportPipeline} instead, which validates and
+ * inserts films on several threads and connections at once, committing every batch on its own.
+ * 
+ * <p>For large files, a commit interval can be set to commit every few thousand rows instead of
+ * holding one transaction for the whole file. After each commit an {@link ImportCheckpoint} records how
+ * far the file has been committed, and an import of the same file that was interrupted continues
+ * from the last checkpoint instead of starting over.
+ * 
+ * <p>Films that are already in the database, or that appear earlier in the same file with the same title
+ * and release year, are skipped and reported as skipped duplicates, see {@link DuplicateDetector}.
+ * 
+ * <p>For loading a whole catalog, bulk load mode streams the file into a staging table in the database
+ * with a {@link FilmBulkLoader} and copies the films from there with a few set based statements. It is the
+ * fastest way to import a large file, but always runs in one transaction on one connection.
+ * 
  * <p>The expected CSV format is:
  * <pre>
  * title,description,releaseYear,genre
@@ -25,21 +54,237 @@ import java.util.ArrayList;
  */
 public class FilmImportService {
     
+    /** Components notified of every committed import, shared by all import services */
+    private static final List<FilmImportListener> IMPORT_LISTENERS = new CopyOnWriteArrayList<>();
+    
+    /** Number of films inserted per JDBC batch. A batch size of 1 inserts the films one row at a time. */
+    private int batchSize = FilmDAO.DEFAULT_BATCH_SIZE;
+    
+    /** Whether genres that do not exist in the category table are created during the import */
+    private boolean autoCreateGenres;
+    
+    /** Number of threads that validate films, and of connections that insert them */
+    private int workerCount = Integer.getInteger("film.import.workers", 1);
+    
+    /** Number of rows between commits and checkpoints, or 0 to import the whole file in one transaction */
+    private int commitInterval = Integer.getInteger("film.import.commitRows", 0);
+    
+    /** The checkpoint file the names of the checkpoints of chunked imports are based on */
+    private Path checkpointFile = Paths.get(System.getProperty("film.import.checkpointFile", "film-import.checkpoint"));
+    
+    /** Whether films already in the database or earlier in the file are skipped */
+    private boolean skipDuplicates = Boolean.parseBoolean(System.getProperty("film.import.skipDuplicates", "true"));
+    
+    /** Whether the file is loaded through a staging table instead of inserted batch by batch */
+    private boolean bulkLoad = Boolean.getBoolean("film.import.bulkLoad");
+    
+    /**
+     * Gets the number of films inserted per JDBC batch.
+     * 
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * Sets the number of films inserted per JDBC batch. Use 1 to insert one row at a time,
+     * for example to compare throughput with the batched path, as ImportThroughputBenchmark in the
+     * tests does.
+     * 
+     * @param batchSize	the batch size, must be at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Gets whether genres that do not exist in the database are created during the import.
+     * 
+     * @return true if missing genres are created, false if films with unknown genres fail to import
+     */
+    public boolean isAutoCreateGenres() {
+        return autoCreateGenres;
+    }
+    
+    /**
+     * Sets whether genres that do not exist in the database are created during the import.
+     * 
+     * @param autoCreateGenres	true to create missing genres, false to fail films with unknown genres
+     */
+    public void setAutoCreateGenres(boolean autoCreateGenres) {
+        this.autoCreateGenres = autoCreateGenres;
+    }
+    
+    /**
+     * Gets the number of threads that validate films and of connections that insert them.
+     * 
+     * @return the worker count
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+    
+    /**
+     * Sets the number of threads that validate films and of connections that insert them. The default
+     * is given by the film.import.workers system property, or 1.
+     * 
+     * <p>With 1 worker the whole import runs in one transaction on one connection. With more workers,
+     * each writer commits its batches on its own connection, so an import that fails part way leaves
+     * the batches committed before the failure in the database. Each validator and each writer has a
+     * connection of its own, so the import uses twice as many connections as the worker count, which must
+     * be available in the connection pool (db.pool.maxSize, default 10).
+     * 
+     * @param workerCount	the worker count, must be at least 1
+     */
+    public void setWorkerCount(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workerCount);
+        }
+        this.workerCount = workerCount;
+    }
+    
+    /**
+     * Gets the number of rows imported between commits.
+     * 
+     * @return the commit interval, or 0 if the whole file is imported in one transaction
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+    
+    /**
+     * Sets the number of rows imported between commits. The default is given by the film.import.commitRows
+     * system property, or 0.
+     * 
+     * <p>With a commit interval, the import is committed every time at least this many rows have been read,
+     * at the end of a batch, and a checkpoint is written after every commit. If the import stops before the
+     * end of the file, the next import of the same unchanged file continues after the last checkpoint.
+     * A crash between a commit and its checkpoint imports the rows of that commit again.
+     * 
+     * @param commitInterval	the number of rows between commits, or 0 to import the whole file in
+     *                      	one transaction without checkpoints
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new IllegalArgumentException("Commit interval can not be negative: " + commitInterval);
+        }
+        this.commitInterval = commitInterval;
+    }
+    
+    /**
+     * Gets the checkpoint file the names of the checkpoints of imports with a commit interval are based on.
+     * 
+     * @return the path of the checkpoint file
+     */
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+    
+    /**
+     * Sets the checkpoint file the names of the checkpoints of imports with a commit interval are based on.
+     * The checkpoint of each CSV file is kept next to it, with a hash of the path of the CSV file added to the
+     * name, see {@link ImportCheckpoint#fileFor(Path, String)}. The default is given by the
+     * film.import.checkpointFile system property, or film-import.checkpoint in the working directory.
+     * 
+     * @param checkpointFile	the path of the checkpoint file
+     */
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+    
+    /**
+     * Gets whether films that are already in the database, or earlier in the file, are skipped.
+     * 
+     * @return true if duplicates are skipped
+     */
+    public boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+    
+    /**
+     * Sets whether films that are already in the database, or earlier in the file, are skipped. Films are
+     * duplicates if their trimmed titles are equal without regard to case and they have the same release
+     * year. Skipped films are reported apart from failed films, see {@link ImportResult#getSkippedDuplicates()}.
+     * The default is given by the film.import.skipDuplicates system property, or true.
+     * 
+     * @param skipDuplicates	true to skip duplicates, false to import every valid row
+     */
+    public void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+    }
+    
+    /**
+     * Gets whether files are loaded through a staging table instead of inserted batch by batch.
+     * 
+     * @return true if bulk load mode is enabled
+     */
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+    
+    /**
+     * Sets whether files are loaded through a staging table instead of inserted batch by batch. The default
+     * is given by the film.import.bulkLoad system property, or false.
+     * 
+     * <p>In bulk load mode the whole file is sent to the database with LOAD DATA LOCAL INFILE, which the
+     * server must allow with local_infile, and imported in one transaction. The batch size, worker count
+     * and commit interval are not used. Besides invalid release years and unknown genres, the database
+     * rejects films whose title or release year does not fit the film table, and they are reported as failed.
+     * 
+     * <p>Bulk load mode is experimental: it needs MySQL 8.0, locks the film tables against other writers
+     * while the file is imported, and is not covered by the tests, which run without a MySQL server.
+     * 
+     * @param bulkLoad	true to load files through a staging table
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+    
+    /**
+     * Registers a listener that is notified of the films added by every import that is committed.
+     * 
+     * @param listener	The listener to add
+     */
+    public static void addImportListener(FilmImportListener listener) {
+        IMPORT_LISTENERS.add(listener);
+    }
+    
+    /**
+     * Removes a listener registered with {@link #addImportListener(FilmImportListener)}.
+     * 
+     * @param listener	The listener to remove
+     */
+    public static void removeImportListener(FilmImportListener listener) {
+        IMPORT_LISTENERS.remove(listener);
+    }
+    
     /**
      * Coordinates the import of films from a CSV file into the database. This method manages the overall
      * import process by reading the CSV file and coordinating with FilmDAO for database operations.
      * 
      * <p>The method will:
      * <ul>
-     *   <li>Read and parse the CSV file</li>
+     *   <li>Read and parse the CSV file one row at a time</li>
      *   <li>Validate each film's data</li>
-     *   <li>Coordinate with FilmDAO for database operations</li>
-     *   <li>Track successful and failed imports</li>
+     *   <li>Coordinate with FilmDAO for database operations, inserting each batch of {@link #getBatchSize()}
+     *       films as soon as it has been read</li>
+     *   <li>Skip films that are already in the database or earlier in the file</li>
+     *   <li>Track successful, failed and skipped imports</li>
      *   <li>Manage database transactions</li>
      * </ul>
      * 
+     * <p>With a worker count above 1 these steps run on several threads, see {@link ImportPipeline}.
+     * With a commit interval, an import of a file that was interrupted continues after its last
+     * checkpoint, see {@link #setCommitInterval(int)}. In bulk load mode the file is loaded through
+     * a staging table instead, see {@link #setBulkLoad(boolean)}.
+     * 
      * <p>If any film fails to import, the error will be logged in the ImportResult,
-     * but the method will continue processing other films.
+     * but the method will continue processing other films. Films are only recorded as imported once they
+     * have been committed.
      * 
      * @param filePath	The path to the CSV file containing film data. Must be a valid file path
      *               	with read permissions and proper CSV formatting.
@@ -49,86 +294,381 @@ public class FilmImportService {
      *           <li>Failed imports with error messages</li>
      *           <li>Total number of processed films</li>
      *         </ul>
-     * @throws Exception If there is an error reading the file or accessing the database.
+     * @throws ImportFailedException If there is an error reading the file or accessing the database. It carries
+     *         the result of the rows handled before the error; the films it lists as imported were committed.
+     * @throws Exception If the file can not be opened.
      */
     public ImportResult importFilmsFromCSV(String filePath) throws Exception {
+        if (bulkLoad) {
+            return importInBulk(filePath);
+        }
         ImportResult result = new ImportResult();
+        long startTime = System.currentTimeMillis();
+        Path fileCheckpoint = commitInterval > 0 ? ImportCheckpoint.fileFor(checkpointFile, filePath) : null;
+        ImportCheckpoint checkpoint = findCheckpoint(filePath, fileCheckpoint);
+        result.setResumedFromRow(checkpoint.getRowNumber());
         
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            FilmDAO filmDAO = new FilmDAO(conn);
-            
-            List<Film> films = readFilmsFromCSV(filePath);
-            
-            for (Film film : films) {
-                try {
-                    int genreId = filmDAO.getGenreId(film.getGenre());
-                    int filmId = filmDAO.insertFilm(film);
-                    filmDAO.insertFilmCategory(filmId, genreId);
-                    
-                    result.addSuccessfulImport(film);
-                    
-                } catch (Exception e) {
-                    result.addFailedImport(film, e.getMessage());
+        try (CsvRowReader reader = new CsvRowReader(filePath, checkpoint.getOffset(), checkpoint.getRowNumber())) {
+            if (workerCount > 1) {
+                new ImportPipeline(workerCount, batchSize, autoCreateGenres, skipDuplicates,
+                        fileCheckpoint, commitInterval).run(reader, checkpoint, result);
+            } else {
+                importSequentially(reader, checkpoint, fileCheckpoint, result);
+            }
+            if (fileCheckpoint != null) {
+                ImportCheckpoint.delete(fileCheckpoint);
+            }
+        } catch (Exception e) {
+            if (result.getTotalSuccessful() > 0 && (workerCount > 1 || commitInterval > 0)) {
+                // some batches were committed before the failure, the listeners have to read them back
+                for (FilmImportListener listener : IMPORT_LISTENERS) {
+                    listener.filmsImported(result.getTotalSuccessful());
                 }
             }
-            
-            conn.commit();
-            
+            result.setElapsedMillis(System.currentTimeMillis() - startTime);
+            throw new ImportFailedException("Import failed: " + e.getMessage(), e, result);
+        }
+        
+        result.setElapsedMillis(System.currentTimeMillis() - startTime);
+        notifyListeners(result);
+        return result;
+    }
+    
+    /**
+     * Imports a whole file through the staging table of a {@link FilmBulkLoader}, in one transaction.
+     * Rows with an invalid release year are recorded as failed while the file is streamed, and the films
+     * the database rejects or finds to be duplicates are recorded before the accepted films are inserted.
+     * The inserted films are recorded as imported once the transaction has been committed.
+     * 
+     * @param filePath	The path to the CSV file
+     * @return The result of the import
+     * @throws ImportFailedException If there is an error reading the file or accessing the database; nothing
+     *         has been imported then.
+     */
+    private ImportResult importInBulk(String filePath) throws Exception {
+        ImportResult result = new ImportResult();
+        ImportResult uncommitted = new ImportResult();
+        long startTime = System.currentTimeMillis();
+        System.err.println("Bulk load mode is experimental, importing " + filePath + " through a staging table");
+        
+        try (CsvRowReader reader = new CsvRowReader(filePath, 0, 0);
+             Connection conn = DatabaseConnection.getBulkLoadConnection();
+             FilmBulkLoader loader = new FilmBulkLoader(conn)) {
+            conn.setAutoCommit(false);
+            loader.setAutoCreateGenres(autoCreateGenres);
+            loader.setSkipDuplicates(skipDuplicates);
+            loader.stage(new FilmRows(reader, result));
+            loader.reject(result::addFailedImport, result::addSkippedDuplicate);
+            loader.insert(uncommitted::addSuccessfulImport);
+            commit(conn, uncommitted, result);
         } catch (Exception e) {
-            throw new Exception("Import failed: " + e.getMessage(), e);
+            result.addFailedImports(uncommitted, "Rolled back: " + e.getMessage());
+            result.setElapsedMillis(System.currentTimeMillis() - startTime);
+            throw new ImportFailedException("Import failed: " + e.getMessage(), e, result);
         }
         
+        result.setElapsedMillis(System.currentTimeMillis() - startTime);
+        notifyListeners(result);
         return result;
     }
     
     /**
-     * Reads and parses film data from a CSV file, converting each row into a Film object.
-     * The method expects a specific CSV format and validates the data during parsing.
+     * Finds where an import of a file starts: after the last checkpoint of an interrupted import of the
+     * same, unchanged file, or else at the start of the file.
+     * 
+     * @param filePath		The path to the CSV file
+     * @param fileCheckpoint	Where the checkpoint of the file is kept, or null if the import keeps none
+     * @return The checkpoint to start at
+     */
+    private ImportCheckpoint findCheckpoint(String filePath, Path fileCheckpoint) {
+        ImportCheckpoint start = ImportCheckpoint.start(filePath);
+        if (fileCheckpoint == null) {
+            return start;
+        }
+        ImportCheckpoint saved = ImportCheckpoint.read(fileCheckpoint);
+        return saved != null && saved.isSameFile(start) ? saved : start;
+    }
+    
+    /**
+     * Imports the rows of a file on the calling thread and one connection, committing at the end, or
+     * after every commit interval if one is set. Inserted films are recorded as imported at the commit
+     * that makes them permanent; if the import fails before that, they are recorded as failed.
+     * 
+     * @param reader		The file, positioned at the first row to import
+     * @param checkpoint	The checkpoint the import starts at
+     * @param fileCheckpoint	Where to write checkpoints, or null to write none
+     * @param result		The import result to record every film in
+     * @throws Exception If there is an error reading the file or accessing the database.
+     */
+    private void importSequentially(CsvRowReader reader, ImportCheckpoint checkpoint, Path fileCheckpoint,
+            ImportResult result) throws Exception {
+        try (Connection conn = DatabaseConnection.getConnection();
+             FilmDAO filmDAO = new FilmDAO(conn, batchSize)) {
+            conn.setAutoCommit(false);
+            filmDAO.getGenreCache().setAutoCreate(autoCreateGenres);
+            DuplicateDetector duplicates = skipDuplicates ? DuplicateDetector.load(filmDAO, checkpoint) : null;
+            
+            List<Film> chunk = new ArrayList<>(batchSize);
+            List<Film> inserted = new ArrayList<>();
+            ImportResult uncommitted = new ImportResult();
+            try {
+                String[] row;
+                while ((row = readRow(reader)) != null) {
+                    Film film = toFilm(row, result);
+                    if (film != null) {
+                        chunk.add(film);
+                    }
+                    if (chunk.size() == batchSize) {
+                        importChunk(conn, filmDAO, duplicates, chunk, inserted, uncommitted, result);
+                        chunk.clear();
+                        if (commitInterval > 0 && reader.getRowNumber() - checkpoint.getRowNumber() >= commitInterval) {
+                            commit(conn, duplicates, inserted, uncommitted, result);
+                            checkpoint = checkpoint.advance(reader.getOffset(), reader.getRowNumber());
+                            checkpoint.write(fileCheckpoint);
+                        }
+                    }
+                }
+                importChunk(conn, filmDAO, duplicates, chunk, inserted, uncommitted, result);
+                
+                commit(conn, duplicates, inserted, uncommitted, result);
+            } catch (Exception e) {
+                result.addFailedImports(uncommitted, "Rolled back: " + e.getMessage());
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Commits the transaction of a connection, then moves the films inserted in it to the successful imports
+     * of the result.
+     * 
+     * @param conn			The connection the import transaction runs on
+     * @param uncommitted	The result holding the films inserted since the previous commit
+     * @param result		The import result to record the committed films in
+     * @throws SQLException If the commit fails; the films are left in the uncommitted result
+     */
+    static void commit(Connection conn, ImportResult uncommitted, ImportResult result) throws SQLException {
+        conn.commit();
+        result.addSuccessfulImports(uncommitted);
+    }
+    
+    /**
+     * Commits the transaction of a sequential import, see {@link #commit(Connection, ImportResult, ImportResult)},
+     * then releases the pending keys of the films inserted in it from the detector of duplicate films.
+     * 
+     * @param conn			The connection the import transaction runs on
+     * @param duplicates	The detector of duplicate films, or null if duplicates are imported
+     * @param inserted		The films handed to the database since the previous commit, cleared once released
+     * @param uncommitted	The result holding the films inserted since the previous commit
+     * @param result		The import result to record the committed films in
+     * @throws SQLException If the commit fails; the films are left in the uncommitted result
+     */
+    private static void commit(Connection conn, DuplicateDetector duplicates, List<Film> inserted,
+                               ImportResult uncommitted, ImportResult result) throws SQLException {
+        commit(conn, uncommitted, result);
+        if (duplicates != null) {
+            duplicates.inserted(inserted);
+        }
+        inserted.clear();
+    }
+    
+    /**
+     * Tells the import listeners about the films of a committed import. If the result does not list
+     * every imported film, the listeners are only told how many films were imported.
+     * 
+     * @param result	The result of the committed import
+     */
+    private static void notifyListeners(ImportResult result) {
+        for (FilmImportListener listener : IMPORT_LISTENERS) {
+            if (result.getSuccessfulImports().size() == result.getTotalSuccessful()) {
+                listener.filmsImported(result.getSuccessfulImports());
+            } else {
+                listener.filmsImported(result.getTotalSuccessful());
+            }
+        }
+    }
+    
+    /**
+     * Resolves the genres of a chunk of films in one lookup, skips duplicates, then inserts the other films
+     * with a known genre. Films whose genre does not exist, and could not be created, are recorded as failed.
+     * 
+     * @param conn			The connection the import transaction runs on
+     * @param filmDAO		The DAO used for the lookups and inserts
+     * @param duplicates	The detector of duplicate films, or null to import duplicates
+     * @param chunk			The films to import
+     * @param inserted		The films handed to the database, whose pending keys are released at the next commit
+     * @param uncommitted	The result to record the inserted films in until they are committed
+     * @param result		The import result to record failed and skipped films in
+     * @throws SQLException If the genres or possible duplicates can not be looked up
+     */
+    private void importChunk(Connection conn, FilmDAO filmDAO, DuplicateDetector duplicates, List<Film> chunk,
+                             List<Film> inserted, ImportResult uncommitted, ImportResult result) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<String> genreNames = new ArrayList<>(chunk.size());
+        for (Film film : chunk) {
+            genreNames.add(film.getGenre());
+        }
+        Map<String, Integer> knownGenres = filmDAO.getGenreIds(genreNames);
+        
+        List<Film> batch = new ArrayList<>(chunk.size());
+        for (Film film : chunk) {
+            if (knownGenres.containsKey(film.getGenre())) {
+                batch.add(film);
+            } else {
+                result.addFailedImport(film, "Genre not found: " + film.getGenre());
+            }
+        }
+        if (duplicates != null) {
+            batch = duplicates.skipDuplicates(batch, filmDAO, result);
+        }
+        int[] genreIds = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            genreIds[i] = knownGenres.get(batch.get(i).getGenre());
+        }
+        insertBatch(conn, filmDAO, batch, genreIds, uncommitted, result);
+        if (duplicates != null) {
+            inserted.addAll(batch);
+        }
+    }
+    
+    /**
+     * Inserts a batch of films together with their film_category rows. If the batch fails, the batch
+     * is rolled back and the films are inserted one at a time, so that only the films that are actually
+     * invalid are reported as failed. The inserted films are recorded apart from the result, since they only
+     * count as imported once they are committed, see {@link #commit(Connection, ImportResult, ImportResult)}.
+     * 
+     * @param conn			The connection the import transaction runs on
+     * @param filmDAO		The DAO used for the inserts
+     * @param batch			The films to insert
+     * @param genreIds		The category ID of each film in the batch, in the same order
+     * @param uncommitted	The result to record the inserted films in until they are committed
+     * @param result		The import result to record failed films in
+     * @throws SQLException If the savepoint for the batch can not be created or rolled back to
+     */
+    static void insertBatch(Connection conn, FilmDAO filmDAO, List<Film> batch, int[] genreIds,
+                            ImportResult uncommitted, ImportResult result) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() > 1) {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                int[] filmIds = filmDAO.insertFilms(batch);
+                filmDAO.insertFilmCategories(filmIds, Arrays.copyOf(genreIds, batch.size()));
+                conn.releaseSavepoint(savepoint);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).setFilmId(filmIds[i]);
+                    uncommitted.addSuccessfulImport(batch.get(i));
+                }
+                return;
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+            }
+        }
+        
+        for (int i = 0; i < batch.size(); i++) {
+            Film film = batch.get(i);
+            try {
+                int filmId = filmDAO.insertFilm(film);
+                filmDAO.insertFilmCategory(filmId, genreIds[i]);
+                film.setFilmId(filmId);
+                uncommitted.addSuccessfulImport(film);
+            } catch (Exception e) {
+                result.addFailedImport(film, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Reads the next data row from a CSV file.
      * 
      * <p>CSV Format Requirements:
      * <ul>
-     *   <li>First row must be a header row (automatically skipped)</li>
+     *   <li>First row must be a header row (skipped by the reader)</li>
      *   <li>Each data row must contain exactly 4 columns in the order:
      *       title, description, releaseYear, genre</li>
      *   <li>Fields may be quoted or unquoted</li>
-     *   <li>Release year must be a valid integer</li>
      * </ul>
      * 
+     * <p>Rows with fewer than 4 columns, such as blank lines, are skipped.
+     * 
+     * @param reader	The reader to read the row from
+     * @return The columns of the next row, or null at the end of the file
+     * @throws IOException If there is an error reading or parsing the CSV file.
+     */
+    static String[] readRow(CsvRowReader reader) throws IOException {
+        String[] row;
+        while ((row = reader.readRow()) != null) {
+            if (row.length >= 4) {
+                return row;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Converts a CSV row into a Film object, validating the data.
+     * 
      * <p>Data Validation:
      * <ul>
      *   <li>Trims whitespace from all fields</li>
-     *   <li>Validates row length (must be at least 4 columns)</li>
-     *   <li>Parses release year as integer</li>
+     *   <li>Records rows whose release year is not an integer as failed imports</li>
      * </ul>
      * 
-     * @param filePath	The path to the CSV file to read. Must be a valid file path
-     *                 	with read permissions.
-     * @return List of Film objects created from the CSV data. Empty list if no
-     *         valid data rows are found.
-     * @throws Exception If there is an error reading or parsing the CSV file.
+     * @param row		The columns of the row: title, description, releaseYear, genre
+     * @param result	The import result to record invalid rows in
+     * @return The film, or null if the row is invalid
+     */
+    static Film toFilm(String[] row, ImportResult result) {
+        String title = row[0].trim();
+        String description = row[1].trim();
+        String releaseYear = row[2].trim();
+        String genre = row[3].trim();
+        try {
+            return new Film(title, description, Integer.parseInt(releaseYear), genre);
+        } catch (NumberFormatException e) {
+            result.addFailedImport(new Film(title, description, 0, genre), "Invalid release year: " + releaseYear);
+            return null;
+        }
+    }
+    
+    /**
+     * The valid films of a CSV file, read one row at a time as they are needed. Rows with an invalid release
+     * year are recorded as failed and left out. Read errors are thrown as UncheckedIOException.
      */
-    private List<Film> readFilmsFromCSV(String filePath) throws Exception {
-        List<Film> films = new ArrayList<>();
+    private static final class FilmRows implements Iterator<Film> {
+        private final CsvRowReader reader;
+        private final ImportResult result;
+        private Film next;
         
-        try (CSVReader reader = new CSVReaderBuilder(new FileReader(filePath))
-                .withSkipLines(1) // Skip header
-                .build()) {
-                
-            List<String[]> rows = reader.readAll();
-            for (String[] row : rows) {
-                if (row.length >= 4) {
-                    Film film = new Film(
-                        row[0].trim(),
-                        row[1].trim(),
-                        Integer.parseInt(row[2].trim()),
-                        row[3].trim()
-                    );
-                    films.add(film);
+        private FilmRows(CsvRowReader reader, ImportResult result) {
+            this.reader = reader;
+            this.result = result;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            try {
+                String[] row;
+                while (next == null && (row = readRow(reader)) != null) {
+                    next = toFilm(row, result);
                 }
+                return next != null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
             }
         }
         
-        return films;
+        @Override
+        public Film next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Film film = next;
+            next = null;
+            return film;
+        }
     }
 }
@@ -4,16 +4,32 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import db.DatabaseConnection;
+import db.ResultSetStream;
+import db.UncheckedSQLException;
 import gui.BrowseMoviesPage;
 
 /**
  * The FilmManager class manages film data retrieval from the database and updates the GUI.
- * It implements both FilmHandler for data operations and FilmViewHandler for GUI updates.
+ * It implements FilmHandler for data operations, AsyncFilmHandler for the same operations in the background,
+ * FilmViewHandler for GUI updates, and FilmChangeLog for keeping copies of the catalog up to date.
  *
  * <p>This class provides functionality for:
  * <ul>
@@ -27,48 +43,231 @@ import gui.BrowseMoviesPage;
  *   <li>Film title (partial matches supported)</li>
  *   <li>Genre (exact matches)</li>
  *   <li>Release year</li>
+ *   <li>Words in the title or description, ranked by relevance</li>
+ *   <li>Any combination of title, genres, release years and rating, in a single query</li>
  * </ul>
  * 
+ * <p>The full-text search uses the FULLTEXT index on title and description of Sakila's film_text table.
+ * Unlike the title search, which uses LIKE with a leading wildcard and has to scan every title,
+ * it is answered from the index.
+ * 
  * <p>SQL queries join the film, film_category, and category tables to retrieve complete film information.
+ * The genres of a film are aggregated with GROUP_CONCAT, so each film is returned once with all of its genres.
+ * They only read data, so they run on a read replica when one is configured.
+ * 
+ * <p>Every search is also available as a paged listing ordered by title. Pages use keyset pagination, so
+ * fetching page 1000 costs the same as fetching page 1. The GUI loads the next page when the user scrolls
+ * to the bottom of the film table.
+ * 
+ * <p>Changed films are found through the last_update columns of film and film_category, with one range lookup
+ * on each table. Sakila does not index these columns, and without an index each lookup reads every row of its
+ * table, so databases with a large catalog require these indexes:
+ * <pre>
+ * CREATE INDEX idx_film_last_update ON film (last_update);
+ * CREATE INDEX idx_film_category_last_update ON film_category (last_update);
+ * </pre>
+ * 
+ * <p>Pages and the streamed film summaries leave out the descriptions, which make up most of the data of a film.
+ * The film view loads the descriptions of the rows that become visible with one query per batch of films.
  * 
  * @author Erica Laub Varpe
  */
-public class FilmManager implements FilmHandler, FilmViewHandler {
+public class FilmManager implements FilmHandler, AsyncFilmHandler, FilmViewHandler, FilmChangeLog {
     
 	/**
-     * Helpet method to map database ResultSet row to a Film object.
+	 * Runs the asynchronous lookups. The concurrency limit defaults to the size of the db connection pool
+	 * and can be changed with the film.async.maxConcurrency system property.
+	 */
+	private static final AsyncFilmExecutor ASYNC_EXECUTOR =
+			new AsyncFilmExecutor(Integer.getInteger("film.async.maxConcurrency", 10));
+	
+	/** Where the searches of the film view are answered, this FilmManager unless another source is given */
+	private final FilmHandler viewSource;
+	
+	/** Maximum number of films shown for a full-text search */
+	private static final int FULL_TEXT_RESULTS = 200;
+	
+	/** Number of films loaded into the film view at a time */
+	private static final int VIEW_PAGE_SIZE = 100;
+	
+	/** The lookup currently running for the film view, cancelled when a newer search replaces it */
+	private CompletableFuture<FilmPage> pendingViewUpdate;
+	
+	/** The search currently shown in the film view, used to load its following pages */
+	private Function<FilmCursor, FilmPage> viewQuery;
+	
+	/** Where the next page of the current search starts, or null if all of it has been loaded */
+	private FilmCursor viewCursor;
+	
+	/** The films shown in the film view, in row order */
+	private final List<Film> viewFilms = new ArrayList<>();
+	
+	/** IDs of the films in the film view whose descriptions have been requested */
+	private final Set<Integer> requestedDescriptions = new HashSet<>();
+	
+	/** Maximum number of film IDs in one query for descriptions or films by ID */
+	private static final int DESCRIPTION_BATCH_SIZE = 500;
+	
+	/** Separator between the genre names aggregated by GROUP_CONCAT */
+	private static final String GENRE_SEPARATOR = "|";
+	
+	/**
+	 * Columns selected for a film. The genres of a film are aggregated into one column,
+	 * so every film is returned as a single row no matter how many genres it has.
+	 */
+	private static final String FILM_COLUMNS =
+			"SELECT f.film_id, f.title, f.description, f.release_year, " +
+			"GROUP_CONCAT(c.name ORDER BY c.name SEPARATOR '" + GENRE_SEPARATOR + "') AS categories ";
+	
+	/** Columns selected for a film summary, which are the film columns without the description */
+	private static final String SUMMARY_COLUMNS =
+			"SELECT f.film_id, f.title, f.release_year, " +
+			"GROUP_CONCAT(c.name ORDER BY c.name SEPARATOR '" + GENRE_SEPARATOR + "') AS categories ";
+	
+	/** Joins from the film table (alias f) to the genres of the film */
+	private static final String GENRE_JOINS =
+			"JOIN film_category fc ON f.film_id = fc.film_id " +
+			"JOIN category c ON fc.category_id = c.category_id ";
+	
+	/**
+	 * Condition selecting films that have a given genre. It is a subquery rather than a condition on the
+	 * joined category, so the films still list all of their genres.
+	 */
+	private static final String GENRE_FILTER =
+			"EXISTS (SELECT 1 FROM film_category fcg JOIN category cg ON fcg.category_id = cg.category_id " +
+			"WHERE fcg.film_id = f.film_id AND cg.name = ?)";
+	
+	/**
+	 * SQL query for the full-text search. The best matches are ranked in a subquery on film_text, and only
+	 * those films are joined with their genres. The search text is bound twice, once for the score and
+	 * once for the condition; MySQL evaluates the identical MATCH expressions only once.
+	 */
+	private static final String FULL_TEXT_SQL =
+			FILM_COLUMNS + "FROM (SELECT ft.film_id, " +
+			"MATCH (ft.title, ft.description) AGAINST (? IN NATURAL LANGUAGE MODE) AS score FROM film_text ft " +
+			"WHERE MATCH (ft.title, ft.description) AGAINST (? IN NATURAL LANGUAGE MODE) " +
+			"ORDER BY score DESC LIMIT ?) m " +
+			"JOIN film f ON f.film_id = m.film_id " + GENRE_JOINS +
+			"GROUP BY f.film_id, m.score ORDER BY m.score DESC, f.title";
+	
+	/** SQL query for retrieving every film with its genres */
+	private static final String ALL_FILMS_SQL =
+			FILM_COLUMNS + "FROM film f " + GENRE_JOINS + "GROUP BY f.film_id";
+	
+	/** SQL query for retrieving every film with its genres, but without its description */
+	private static final String FILM_SUMMARIES_SQL =
+			SUMMARY_COLUMNS + "FROM film f " + GENRE_JOINS + "GROUP BY f.film_id";
+	
+	/**
+	 * SQL query for retrieving the films, and the films of the film_category rows, changed since a time.
+	 * The changed film IDs are the UNION of two separate lookups, so each can use the last_update index of its
+	 * table; a single condition with OR would scan every film.
+	 */
+	private static final String CHANGED_FILMS_SQL =
+			SUMMARY_COLUMNS + "FROM (" +
+			"SELECT fu.film_id FROM film fu WHERE fu.last_update >= ? " +
+			"UNION SELECT fcu.film_id FROM film_category fcu WHERE fcu.last_update >= ?) changed " +
+			"JOIN film f ON f.film_id = changed.film_id " + GENRE_JOINS +
+			"GROUP BY f.film_id";
+	
+	/** SQL query for retrieving the genres of every film, in the order GROUP_CONCAT lists them */
+	private static final String FILM_GENRES_SQL =
+			"SELECT fc.film_id, c.name FROM film_category fc " +
+			"JOIN category c ON fc.category_id = c.category_id ORDER BY fc.film_id, c.name";
+	
+	/** Start of the SQL query for retrieving films by ID, followed by one ? per film and {@link #FILMS_BY_ID_END} */
+	private static final String FILMS_BY_ID_SQL = SUMMARY_COLUMNS + "FROM film f " + GENRE_JOINS + "WHERE f.film_id IN (";
+	
+	/** End of the SQL query for retrieving films by ID */
+	private static final String FILMS_BY_ID_END = ") GROUP BY f.film_id";
+	
+	/** Start of the SQL query for retrieving descriptions, followed by one ? per film and a closing parenthesis */
+	private static final String DESCRIPTIONS_SQL = "SELECT film_id, description FROM film WHERE film_id IN (";
+	
+	/**
+	 * Creates a FilmManager that shows the results of its own database queries in the film view.
+	 */
+	public FilmManager() {
+		this.viewSource = this;
+	}
+	
+	/**
+	 * Creates a FilmManager that shows the results of another FilmHandler in the film view,
+	 * for example the in-memory catalog of {@link CatalogFilmHandler}. The data operations of this
+	 * FilmManager still query the database.
+	 * 
+	 * @param viewSource 	The FilmHandler that answers the searches of the film view
+	 */
+	public FilmManager(FilmHandler viewSource) {
+		this.viewSource = viewSource;
+	}
+	
+	/**
+     * Helpet method to map database ResultSet row to a Film object, splitting the aggregated genre names.
      * 
      * @param resultSet 	The ResultSet containing film data
      * @return A new Film object populated with data from the ResultSet
      * @throws SQLException if there's an error accessing the ResultSet
      */
     private Film mapResultSetToFilm(ResultSet resultSet) throws SQLException {
+        Film film = mapResultSetToFilmSummary(resultSet);
+        film.setDescription(resultSet.getString("description"));
+        return film;
+    }
+
+    /**
+     * Helper method to map a database ResultSet row without a description column to a Film object.
+     * 
+     * @param resultSet 	The ResultSet containing film summary data
+     * @return A new Film object without a description
+     * @throws SQLException if there's an error accessing the ResultSet
+     */
+    private Film mapResultSetToFilmSummary(ResultSet resultSet) throws SQLException {
         String title = resultSet.getString("title");
-        String desc = resultSet.getString("description");
         int releaseYear = resultSet.getInt("release_year");
-        String genre = resultSet.getString("category");
-        return new Film(title, desc, releaseYear, genre);
+        String categories = resultSet.getString("categories");
+        List<String> genres = categories == null
+                ? new ArrayList<>()
+                : Arrays.asList(categories.split(Pattern.quote(GENRE_SEPARATOR)));
+        Film film = new Film(title, null, releaseYear, genres);
+        film.setFilmId(resultSet.getInt("film_id"));
+        return film;
+    }
+
+    /**
+     * Helper method to bind parameters to a prepared statement, in order.
+     * Supports String, Integer and Timestamp parameters for different search types.
+     * 
+     * @param statement 	The statement to bind the parameters to
+     * @param params 		The parameters to bind
+     * @throws SQLException if a parameter can not be set
+     */
+    private void bindParameters(PreparedStatement statement, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] instanceof String) {
+                statement.setString(i + 1, (String) params[i]);
+            } else if (params[i] instanceof Integer) {
+                statement.setInt(i + 1, (Integer) params[i]);
+            } else if (params[i] instanceof Timestamp) {
+                statement.setTimestamp(i + 1, (Timestamp) params[i]);
+            }
+        }
     }
 
     /**
      * Executes a parameterized SQL query and returns a list of Film objects.
-     * Supports both String and Integer parameters for different search types.
      * 
      * @param sql 		The SQL query to execute
-     * @param param 	The parameter to bind to the prepared statement (can be String or Integer),
-     *             		or null for queries without parameters
+     * @param params 	The parameters to bind to the prepared statement (String or Integer),
+     *             		none for queries without parameters
      * @return List of Film objects matching the query criteria
      */
-    private List<Film> getFilms(String sql, Object param) {
+    private List<Film> getFilms(String sql, Object... params) {
         List<Film> films = new ArrayList<>();
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getReadConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
-            if (param instanceof String) {
-                statement.setString(1, (String) param);
-            } else if (param instanceof Integer) {
-                statement.setInt(1, (Integer) param);
-            }
+            bindParameters(statement, params);
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
@@ -81,55 +280,374 @@ public class FilmManager implements FilmHandler, FilmViewHandler {
         return films;
     }
 
+    /**
+     * Executes one page of a keyset paginated query. The films of the page are selected in a subquery
+     * that seeks past the cursor through the title index, and only those films are joined with their genres.
+     * The films are returned without their descriptions.
+     * 
+     * @param filter 		SQL condition on the film table (alias f) selecting the films to list
+     * @param filterParam 	The parameter of the filter condition, or null if it has none
+     * @param after 		The cursor to start after, or null for the first page
+     * @param pageSize 		The maximum number of films on the page
+     * @return The page of films, ordered by title and film ID
+     */
+    private FilmPage getFilmPage(String filter, Object filterParam, FilmCursor after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1: " + pageSize);
+        }
+        String sql = SUMMARY_COLUMNS +
+                     "FROM (SELECT f.film_id, f.title, f.release_year FROM film f " +
+                     "WHERE " + filter +
+                     (after != null ? " AND (f.title > ? OR (f.title = ? AND f.film_id > ?))" : "") +
+                     " ORDER BY f.title, f.film_id LIMIT ?) f " +
+                     GENRE_JOINS +
+                     "GROUP BY f.film_id ORDER BY f.title, f.film_id";
+
+        List<Object> params = new ArrayList<>();
+        if (filterParam != null) {
+            params.add(filterParam);
+        }
+        if (after != null) {
+            params.add(after.getTitle());
+            params.add(after.getTitle());
+            params.add(after.getFilmId());
+        }
+        params.add(pageSize + 1); // one extra film tells us whether there is a next page
+
+        List<Film> films = new ArrayList<>();
+        boolean hasMore = false;
+        try (Connection connection = DatabaseConnection.getReadConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            bindParameters(statement, params.toArray());
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (films.size() == pageSize) {
+                        hasMore = true;
+                        break;
+                    }
+                    films.add(mapResultSetToFilmSummary(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching films: " + e.getMessage());
+        }
+        return new FilmPage(films, hasMore);
+    }
+
     @Override
     public List<Film> getAllFilms() {
-        final String sql = "SELECT f.film_id, f.title, f.description, f.release_year, c.name AS category " +
-                           "FROM film f " +
-                           "JOIN film_category fc ON f.film_id = fc.film_id " +
-                           "JOIN category c ON fc.category_id = c.category_id;";
-        return getFilms(sql, null);
+        return getFilms(ALL_FILMS_SQL);
+    }
+
+    @Override
+    public FilmPage getAllFilms(FilmCursor after, int pageSize) {
+        return getFilmPage("1 = 1", null, after, pageSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The query uses MySQL's streaming mode (a forward-only result set with fetch size Integer.MIN_VALUE),
+     * so the driver reads one row at a time from the server instead of buffering the whole result.
+     * The connection stays borrowed until the stream is closed, fully read, or garbage collected.
+     * A failed query or read is thrown as an {@link UncheckedSQLException}.
+     */
+    @Override
+    public Stream<Film> streamAllFilms() {
+        return streamFilms(ALL_FILMS_SQL, this::mapResultSetToFilm);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The films are streamed from the database in the same way as by {@link #streamAllFilms()}.
+     */
+    @Override
+    public Stream<Film> streamFilmSummaries() {
+        return streamFilms(FILM_SUMMARIES_SQL, this::mapResultSetToFilmSummary);
+    }
+
+    /**
+     * Helper method to stream the rows of a query without parameters, using MySQL's streaming mode.
+     * 
+     * @param sql 		The SQL query to execute
+     * @param mapper 	Maps each row to a Film object
+     * @return A stream of films, which should be closed by the caller
+     * @throws UncheckedSQLException If the query fails, or later if a row can not be read, so that a failed
+     *         query is never taken for one that found fewer films
+     */
+    private Stream<Film> streamFilms(String sql, ResultSetStream.RowMapper<Film> mapper) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = DatabaseConnection.getReadConnection();
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            ResultSet resultSet = statement.executeQuery();
+            return ResultSetStream.stream(connection, statement, resultSet, mapper);
+        } catch (SQLException e) {
+            try {
+                if (statement != null) {
+                    statement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (SQLException closeError) {
+                System.err.println("Error closing connection: " + closeError.getMessage());
+            }
+            throw new UncheckedSQLException("Error streaming films: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The descriptions are read with one query per {@value #DESCRIPTION_BATCH_SIZE} films. A failed query is
+     * thrown as an {@link UncheckedSQLException}.
+     */
+    @Override
+    public Map<Integer, String> getDescriptions(Collection<Integer> filmIds) {
+        Map<Integer, String> descriptions = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new HashSet<>(filmIds));
+        try (Connection connection = DatabaseConnection.getReadConnection()) {
+            for (int start = 0; start < ids.size(); start += DESCRIPTION_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(start, Math.min(start + DESCRIPTION_BATCH_SIZE, ids.size()));
+                String sql = DESCRIPTIONS_SQL + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")";
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    bindParameters(statement, batch.toArray());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            String description = resultSet.getString("description");
+                            if (description != null) {
+                                descriptions.put(resultSet.getInt("film_id"), description);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException("Error fetching descriptions: " + e.getMessage(), e);
+        }
+        return descriptions;
     }
 
     @Override
     public List<Film> getFilmByTitle(String partialTitle) {
-        final String sql = "SELECT f.film_id, f.title, f.description, f.release_year, c.name AS category " +
-                           "FROM film f " +
-                           "JOIN film_category fc ON f.film_id = fc.film_id " +
-                           "JOIN category c ON fc.category_id = c.category_id " +
-                           "WHERE f.title LIKE ?";
+        final String sql = FILM_COLUMNS + "FROM film f " + GENRE_JOINS +
+                           "WHERE f.title LIKE ? GROUP BY f.film_id";
         return getFilms(sql, "%" + partialTitle + "%");
     }
 
+    @Override
+    public FilmPage getFilmByTitle(String partialTitle, FilmCursor after, int pageSize) {
+        return getFilmPage("f.title LIKE ?", "%" + partialTitle + "%", after, pageSize);
+    }
+
     @Override
     public List<Film> getFilmByGenre(String genre) {
-        final String sql = "SELECT f.film_id, f.title, f.description, f.release_year, c.name AS category " +
-                           "FROM film f " +
-                           "JOIN film_category fc ON f.film_id = fc.film_id " +
-                           "JOIN category c ON fc.category_id = c.category_id " +
-                           "WHERE c.name = ?";
+        final String sql = FILM_COLUMNS + "FROM film f " + GENRE_JOINS +
+                           "WHERE " + GENRE_FILTER + " GROUP BY f.film_id";
         return getFilms(sql, genre);
     }
 
+    @Override
+    public FilmPage getFilmByGenre(String genre, FilmCursor after, int pageSize) {
+        return getFilmPage(GENRE_FILTER, genre, after, pageSize);
+    }
+
     @Override
     public List<Film> getFilmByReleaseYear(int releaseYear) {
-        final String sql = "SELECT f.film_id, f.title, f.description, f.release_year, c.name AS category " +
-                           "FROM film f " +
-                           "JOIN film_category fc ON f.film_id = fc.film_id " +
-                           "JOIN category c ON fc.category_id = c.category_id " +
-                           "WHERE f.release_year = ?";
+        final String sql = FILM_COLUMNS + "FROM film f " + GENRE_JOINS +
+                           "WHERE f.release_year = ? GROUP BY f.film_id";
         return getFilms(sql, releaseYear);
     }
 
+    @Override
+    public FilmPage getFilmByReleaseYear(int releaseYear, FilmCursor after, int pageSize) {
+        return getFilmPage("f.release_year = ?", releaseYear, after, pageSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The criteria are compiled into one query that only contains the conditions for the criteria that
+     * are set. The matching films are sorted and limited in a subquery, and only those films are joined
+     * with their genres.
+     */
+    @Override
+    public List<Film> findFilms(FilmSearchCriteria criteria) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        
+        if (criteria.getTitleFragment() != null && !criteria.getTitleFragment().isEmpty()) {
+            conditions.add("f.title LIKE ?");
+            params.add("%" + criteria.getTitleFragment() + "%");
+        }
+        if (!criteria.getGenres().isEmpty()) {
+            conditions.add("EXISTS (SELECT 1 FROM film_category fcg JOIN category cg ON fcg.category_id = cg.category_id " +
+                           "WHERE fcg.film_id = f.film_id AND cg.name IN (" +
+                           String.join(", ", Collections.nCopies(criteria.getGenres().size(), "?")) + "))");
+            params.addAll(criteria.getGenres());
+        }
+        if (criteria.getFromYear() != null) {
+            conditions.add("f.release_year >= ?");
+            params.add(criteria.getFromYear());
+        }
+        if (criteria.getToYear() != null) {
+            conditions.add("f.release_year <= ?");
+            params.add(criteria.getToYear());
+        }
+        if (criteria.getRating() != null) {
+            conditions.add("f.rating = ?");
+            params.add(criteria.getRating());
+        }
+        
+        String order;
+        switch (criteria.getSortOrder()) {
+            case NEWEST_FIRST:
+                order = "f.release_year DESC, f.title, f.film_id";
+                break;
+            case OLDEST_FIRST:
+                order = "f.release_year, f.title, f.film_id";
+                break;
+            default:
+                order = "f.title, f.film_id";
+                break;
+        }
+        
+        String sql = FILM_COLUMNS +
+                     "FROM (SELECT f.film_id, f.title, f.description, f.release_year FROM film f" +
+                     (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+                     " ORDER BY " + order +
+                     (criteria.getLimit() > 0 ? " LIMIT ?" : "") + ") f " +
+                     GENRE_JOINS +
+                     "GROUP BY f.film_id ORDER BY " + order;
+        if (criteria.getLimit() > 0) {
+            params.add(criteria.getLimit());
+        }
+        return getFilms(sql, params.toArray());
+    }
+
+    @Override
+    public List<Film> searchFullText(String searchText, int maxResults) {
+        return getFilms(FULL_TEXT_SQL, searchText, searchText, maxResults);
+    }
+
+    @Override
+    public Timestamp getCurrentTime() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT CURRENT_TIMESTAMP");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getTimestamp(1);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>Changes are read from the primary database rather than a read replica, since a lagging replica could
+     * show a change only after the time it was checked for.
+     */
+    @Override
+    public FilmChanges getChangesSince(Timestamp since) throws SQLException {
+        Timestamp checkedAt = getCurrentTime();
+        List<Film> films = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(CHANGED_FILMS_SQL)) {
+            bindParameters(statement, since, since);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    films.add(mapResultSetToFilmSummary(resultSet));
+                }
+            }
+        }
+        return new FilmChanges(films, checkedAt);
+    }
+
+    @Override
+    public Map<Integer, List<String>> getAllFilmGenres() throws SQLException {
+        Map<Integer, List<String>> genres = new HashMap<>();
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(FILM_GENRES_SQL);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                genres.computeIfAbsent(resultSet.getInt(1), filmId -> new ArrayList<>()).add(resultSet.getString(2));
+            }
+        }
+        return genres;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The films are read from the primary database, like the changes, with one query per
+     * {@value #DESCRIPTION_BATCH_SIZE} films.
+     */
+    @Override
+    public List<Film> getFilmsById(Collection<Integer> filmIds) throws SQLException {
+        List<Film> films = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(new HashSet<>(filmIds));
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            for (int start = 0; start < ids.size(); start += DESCRIPTION_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(start, Math.min(start + DESCRIPTION_BATCH_SIZE, ids.size()));
+                String sql = FILMS_BY_ID_SQL + String.join(", ", Collections.nCopies(batch.size(), "?")) + FILMS_BY_ID_END;
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    bindParameters(statement, batch.toArray());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            films.add(mapResultSetToFilmSummary(resultSet));
+                        }
+                    }
+                }
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public CompletableFuture<List<Film>> getAllFilmsAsync() {
+        return ASYNC_EXECUTOR.submit(this::getAllFilms);
+    }
+
+    @Override
+    public CompletableFuture<List<Film>> getFilmByTitleAsync(String partialTitle) {
+        return ASYNC_EXECUTOR.submit(() -> getFilmByTitle(partialTitle));
+    }
+
+    @Override
+    public CompletableFuture<List<Film>> getFilmByGenreAsync(String genre) {
+        return ASYNC_EXECUTOR.submit(() -> getFilmByGenre(genre));
+    }
+
+    @Override
+    public CompletableFuture<List<Film>> getFilmByReleaseYearAsync(int releaseYear) {
+        return ASYNC_EXECUTOR.submit(() -> getFilmByReleaseYear(releaseYear));
+    }
+
     /**
      * Helper method to update the film view in the GUI with the provided list of films.
-     * Clears the previous data and displays a message if no films are found.
+     * Clears the previous data and displays a message if no films are found, unless the films
+     * are a following page that is appended to the view.
      *
      * @param films 	The list of films to display
      * @param message The message to show if no films are found
+     * @param append 	true to add the films below the ones already shown
      */
-    private void updateFilmView(List<Film> films, String message) {
-        BrowseMoviesPage.filmView.setRowCount(0); // Clear previous data
+    private void updateFilmView(List<Film> films, String message, boolean append) {
+        if (!append) {
+            BrowseMoviesPage.filmView.setRowCount(0); // Clear previous data
+            viewFilms.clear();
+            requestedDescriptions.clear();
+        }
         for (Film film : films) {
+            viewFilms.add(film);
+            if (film.getDescription() != null) {
+                requestedDescriptions.add(film.getFilmId());
+            }
             BrowseMoviesPage.filmView.addRow(new Object[]{
                 film.getTitle(), 
                 film.getReleaseYear(), 
@@ -137,32 +655,112 @@ public class FilmManager implements FilmHandler, FilmViewHandler {
                 film.getDescription()
             });
         }
-        if (films.isEmpty()) {
+        if (films.isEmpty() && !append) {
             JOptionPane.showMessageDialog(null, message, "No results", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
+    /**
+     * Helper method to load a page of a search in the background and show it in the film view on the
+     * Swing event thread. Starting a new search cancels a lookup that is still running, so an older,
+     * slower search can not overwrite the result of a newer one.
+     *
+     * @param query 	The paged search to run
+     * @param after 	The cursor to continue after, or null to start a new search
+     * @param message 	The message to show if the search finds no films
+     */
+    private void updateFilmViewAsync(Function<FilmCursor, FilmPage> query, FilmCursor after, String message) {
+        if (after == null) {
+            if (pendingViewUpdate != null) {
+                pendingViewUpdate.cancel(true);
+            }
+            viewQuery = query;
+            viewCursor = null;
+        }
+        CompletableFuture<FilmPage> lookup = ASYNC_EXECUTOR.submit(() -> query.apply(after));
+        pendingViewUpdate = lookup;
+        lookup.thenAccept(page -> SwingUtilities.invokeLater(() -> {
+            if (pendingViewUpdate == lookup) {
+                pendingViewUpdate = null;
+                viewCursor = page.getNextCursor();
+                updateFilmView(page.getFilms(), message, after != null);
+            }
+        }));
+    }
+
     @Override
     public void updateFilmViewTitle(String title) {
-        List<Film> films = getFilmByTitle(title);
-        updateFilmView(films, "No films found with title: " + title);
+        updateFilmViewAsync(after -> viewSource.getFilmByTitle(title, after, VIEW_PAGE_SIZE), null,
+                "No films found with title: " + title);
     }
 
     @Override
     public void updateFilmViewGenre(String genre) {
-        List<Film> films = getFilmByGenre(genre);
-        updateFilmView(films, "No films found in genre: " + genre);
+        updateFilmViewAsync(after -> viewSource.getFilmByGenre(genre, after, VIEW_PAGE_SIZE), null,
+                "No films found in genre: " + genre);
     }
 
     @Override
     public void updateFilmViewYear(int year) {
-        List<Film> films = getFilmByReleaseYear(year);
-        updateFilmView(films, "No films found from the year: " + year);
+        updateFilmViewAsync(after -> viewSource.getFilmByReleaseYear(year, after, VIEW_PAGE_SIZE), null,
+                "No films found from the year: " + year);
+    }
+
+    @Override
+    public void updateFilmViewFullText(String searchText) {
+        updateFilmViewAsync(after -> new FilmPage(viewSource.searchFullText(searchText, FULL_TEXT_RESULTS), false), null,
+                "No films found matching: " + searchText);
     }
 
     @Override
     public void updateFilmViewAll() {
-        List<Film> films = getAllFilms();
-        updateFilmView(films, "No films found in the db");
+        updateFilmViewAsync(after -> viewSource.getAllFilms(after, VIEW_PAGE_SIZE), null, "No films found in the db");
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>Only films whose descriptions have not been requested before are looked up, in one background query.
+     * The rows are updated on the Swing event thread, unless a new search has replaced them in the meantime.
+     * If the lookup fails, the error is logged and the films can be requested again.
+     */
+    @Override
+    public void loadDescriptions(int firstRow, int lastRow) {
+        Map<Integer, Integer> rowsById = new HashMap<>();
+        for (int row = Math.max(0, firstRow); row <= lastRow && row < viewFilms.size(); row++) {
+            int filmId = viewFilms.get(row).getFilmId();
+            if (requestedDescriptions.add(filmId)) {
+                rowsById.put(filmId, row);
+            }
+        }
+        if (rowsById.isEmpty()) {
+            return;
+        }
+        List<Film> shownFilms = new ArrayList<>(viewFilms);
+        ASYNC_EXECUTOR.submit(() -> viewSource.getDescriptions(rowsById.keySet()))
+                .whenComplete((descriptions, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        System.err.println("Error loading descriptions: " + error.getMessage());
+                    }
+                    for (Map.Entry<Integer, Integer> requested : rowsById.entrySet()) {
+                        int row = requested.getValue();
+                        // Skip rows that a newer search has replaced
+                        if (row >= viewFilms.size() || viewFilms.get(row) != shownFilms.get(row)) {
+                            continue;
+                        }
+                        if (error != null) {
+                            requestedDescriptions.remove(requested.getKey()); // try again when the row is shown next
+                        } else if (descriptions.containsKey(requested.getKey())) {
+                            BrowseMoviesPage.filmView.setValueAt(descriptions.get(requested.getKey()), row, 3);
+                        }
+                    }
+                }));
+    }
+
+    @Override
+    public void loadMoreFilms() {
+        if (viewQuery != null && viewCursor != null && pendingViewUpdate == null) {
+            updateFilmViewAsync(viewQuery, viewCursor, null);
+        }
     }
 }
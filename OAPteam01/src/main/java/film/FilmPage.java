@@ -0,0 +1,56 @@
+package film;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of films from a paged listing, together with the cursor for the next page.
+ * 
+ * @author Erica Laub Varpe
+ */
+public class FilmPage {
+	
+    private final List<Film> films;
+    private final boolean hasMore;
+
+    /**
+     * Creates a new page.
+     * 
+     * @param films 	the films on this page, in listing order
+     * @param hasMore 	whether there are more films after this page
+     */
+    public FilmPage(List<Film> films, boolean hasMore) {
+        this.films = Collections.unmodifiableList(films);
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Returns the films on this page.
+     * 
+     * @return the films on this page, in listing order
+     */
+    public List<Film> getFilms() {
+        return films;
+    }
+
+    /**
+     * Returns whether more films follow this page.
+     * 
+     * @return true if there is a next page
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Returns the cursor for the next page.
+     * 
+     * @return a cursor positioned after the last film of this page, or null if there are no more films
+     */
+    public FilmCursor getNextCursor() {
+        if (!hasMore || films.isEmpty()) {
+            return null;
+        }
+        return FilmCursor.after(films.get(films.size() - 1));
+    }
+}
@@ -0,0 +1,173 @@
+package film;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The criteria of a combined film search, for example "thrillers from 2006 with 'night' in the title".
+ * Every criterion is optional; a search only filters on the criteria that are set, and a search without
+ * criteria finds all films.
+ *
+ * <p>A FilmHandler turns the criteria into a single query, so the database applies all filters at once
+ * and returns only the matching films.
+ *
+ * @author Erica Laub Varpe
+ */
+public class FilmSearchCriteria {
+
+    /**
+     * The orders search results can be sorted in. Films that sort the same are ordered by title.
+     */
+    public enum SortOrder {
+        /** Alphabetical by title */
+        TITLE,
+        /** Most recent release year first */
+        NEWEST_FIRST,
+        /** Oldest release year first */
+        OLDEST_FIRST
+    }
+
+    private String titleFragment;
+    private Set<String> genres = new LinkedHashSet<>();
+    private Integer fromYear;
+    private Integer toYear;
+    private String rating;
+    private SortOrder sortOrder = SortOrder.TITLE;
+    private int limit;
+
+    /**
+     * Gets the text the titles must contain.
+     *
+     * @return the title fragment, or null to match all titles
+     */
+    public String getTitleFragment() {
+        return titleFragment;
+    }
+
+    /**
+     * Sets the text the titles must contain; it is not case sensitive.
+     *
+     * @param titleFragment	the title fragment, or null to match all titles
+     */
+    public void setTitleFragment(String titleFragment) {
+        this.titleFragment = titleFragment;
+    }
+
+    /**
+     * Gets the genres to search in.
+     *
+     * @return the genre names, empty to match all genres
+     */
+    public Set<String> getGenres() {
+        return Collections.unmodifiableSet(genres);
+    }
+
+    /**
+     * Sets the genres to search in. A film matches if it has at least one of them.
+     *
+     * @param genres	the genre names, empty to match all genres
+     */
+    public void setGenres(Collection<String> genres) {
+        this.genres = new LinkedHashSet<>(genres);
+    }
+
+    /**
+     * Gets the first release year to include.
+     *
+     * @return the first year, or null for no lower bound
+     */
+    public Integer getFromYear() {
+        return fromYear;
+    }
+
+    /**
+     * Gets the last release year to include.
+     *
+     * @return the last year, or null for no upper bound
+     */
+    public Integer getToYear() {
+        return toYear;
+    }
+
+    /**
+     * Sets the range of release years to include. Use the same year twice for a single year.
+     *
+     * @param fromYear	the first year, or null for no lower bound
+     * @param toYear	the last year, or null for no upper bound
+     */
+    public void setYearRange(Integer fromYear, Integer toYear) {
+        if (fromYear != null && toYear != null && fromYear > toYear) {
+            throw new IllegalArgumentException("Year range is empty: " + fromYear + " to " + toYear);
+        }
+        this.fromYear = fromYear;
+        this.toYear = toYear;
+    }
+
+    /**
+     * Gets the film rating to search for.
+     *
+     * @return the rating, or null to match all ratings
+     */
+    public String getRating() {
+        return rating;
+    }
+
+    /**
+     * Sets the film rating to search for, one of G, PG, PG-13, R or NC-17.
+     *
+     * @param rating	the rating, or null to match all ratings
+     */
+    public void setRating(String rating) {
+        this.rating = rating;
+    }
+
+    /**
+     * Gets the order the results are sorted in.
+     *
+     * @return the sort order
+     */
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Sets the order the results are sorted in. The default is by title.
+     *
+     * @param sortOrder	the sort order
+     */
+    public void setSortOrder(SortOrder sortOrder) {
+        if (sortOrder == null) {
+            throw new IllegalArgumentException("Sort order can not be null");
+        }
+        this.sortOrder = sortOrder;
+    }
+
+    /**
+     * Gets the maximum number of films to return.
+     *
+     * @return the limit, or 0 for no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets the maximum number of films to return.
+     *
+     * @param limit	the limit, or 0 for no limit
+     */
+    public void setLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit can not be negative: " + limit);
+        }
+        this.limit = limit;
+    }
+
+    @Override
+    public String toString() {
+        return "FilmSearchCriteria[title=" + titleFragment + ", genres=" + genres + ", years=" + fromYear + "-" + toYear +
+               ", rating=" + rating + ", sort=" + sortOrder + ", limit=" + limit + "]";
+    }
+}
@@ -28,8 +28,30 @@ public interface FilmViewHandler {
      */
     void updateFilmViewYear(int year);
     
+    /**
+     * Updates the view to display the films whose title or description best match the given words.
+     *
+     * @param searchText The words to search for
+     */
+    void updateFilmViewFullText(String searchText);
+    
     /**
      * Updates the view to display all films.
      */
     void updateFilmViewAll();
+    
+    /**
+     * Adds the next page of the current search to the view, if there is one.
+     * Does nothing if the whole result is already shown or a page is still loading.
+     */
+    void loadMoreFilms();
+    
+    /**
+     * Loads the descriptions of the films shown in a range of rows of the view, typically the rows
+     * that have become visible. Films are listed without their descriptions until then.
+     *
+     * @param firstRow The first row to load descriptions for
+     * @param lastRow The last row to load descriptions for, inclusive
+     */
+    void loadDescriptions(int firstRow, int lastRow);
 }
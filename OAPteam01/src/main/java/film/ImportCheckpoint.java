@@ -0,0 +1,176 @@
+package film;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Records how far an import of a CSV file has been committed: the path of the file, the byte offset
+ * just after the last committed row and the number of that row. The size and modification time of the
+ * file are recorded too, so a checkpoint is not used for a file that has changed since.
+ *
+ * <p>A checkpoint is stored as a small properties file, written next to the old one and then moved
+ * over it, so a crash while writing leaves the previous checkpoint intact. Every CSV file has a checkpoint file
+ * of its own, see {@link #fileFor(Path, String)}, so an import of one file does not overwrite the checkpoint of
+ * an interrupted import of another.
+ *
+ * @author Erica Laub Varpe
+ */
+public class ImportCheckpoint {
+
+	private final String filePath;
+	private final long fileSize;
+	private final long lastModified;
+	private final long offset;
+	private final long rowNumber;
+
+	private ImportCheckpoint(String filePath, long fileSize, long lastModified, long offset, long rowNumber) {
+		this.filePath = filePath;
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.offset = offset;
+		this.rowNumber = rowNumber;
+	}
+
+	/**
+	 * Creates a checkpoint at the start of a file, before any row has been committed.
+	 *
+	 * @param filePath 	the path of the CSV file
+	 * @return the checkpoint
+	 */
+	public static ImportCheckpoint start(String filePath) {
+		File file = new File(filePath).getAbsoluteFile();
+		return new ImportCheckpoint(file.getPath(), file.length(), file.lastModified(), 0, 0);
+	}
+
+	/**
+	 * Returns where the checkpoint of an import of a CSV file is kept: next to the given checkpoint file, with
+	 * a hash of the absolute path of the CSV file added to its name. For example film-import.checkpoint becomes
+	 * film-import-3f2a9c0d41b7e865.checkpoint.
+	 *
+	 * @param checkpointFile 	the checkpoint file the name is based on
+	 * @param filePath 			the path of the CSV file
+	 * @return the path of the checkpoint file of the CSV file
+	 */
+	public static Path fileFor(Path checkpointFile, String filePath) {
+		String path = new File(filePath).getAbsolutePath();
+		String hash = UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "").substring(0, 16);
+		String name = checkpointFile.getFileName().toString();
+		int extension = name.lastIndexOf('.');
+		return extension > 0
+				? checkpointFile.resolveSibling(name.substring(0, extension) + "-" + hash + name.substring(extension))
+				: checkpointFile.resolveSibling(name + "-" + hash);
+	}
+
+	/**
+	 * Returns a checkpoint for the same file at a later row.
+	 *
+	 * @param offset 	the byte offset just after the last committed row
+	 * @param rowNumber the number of the last committed row
+	 * @return the new checkpoint
+	 */
+	public ImportCheckpoint advance(long offset, long rowNumber) {
+		return new ImportCheckpoint(filePath, fileSize, lastModified, offset, rowNumber);
+	}
+
+	/**
+	 * Returns whether this checkpoint belongs to the same, unchanged file as another.
+	 *
+	 * @param other 	the other checkpoint, normally one made with {@link #start(String)}
+	 * @return true if both name the same path with the same size and modification time
+	 */
+	public boolean isSameFile(ImportCheckpoint other) {
+		return filePath.equals(other.filePath) && fileSize == other.fileSize && lastModified == other.lastModified;
+	}
+
+	/** @return the absolute path of the CSV file */
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/** @return the byte offset just after the last committed row, 0 at the start of the file */
+	public long getOffset() {
+		return offset;
+	}
+
+	/** @return the number of the last committed row, 0 at the start of the file */
+	public long getRowNumber() {
+		return rowNumber;
+	}
+
+	/**
+	 * Writes the checkpoint, replacing the previous one.
+	 *
+	 * @param checkpointFile 	where the checkpoint is kept
+	 * @throws IOException if the checkpoint can not be written
+	 */
+	public void write(Path checkpointFile) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("filePath", filePath);
+		properties.setProperty("fileSize", Long.toString(fileSize));
+		properties.setProperty("lastModified", Long.toString(lastModified));
+		properties.setProperty("offset", Long.toString(offset));
+		properties.setProperty("rowNumber", Long.toString(rowNumber));
+
+		Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporary)) {
+			properties.store(out, "Film import checkpoint");
+		}
+		try {
+			Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint written by {@link #write(Path)}.
+	 *
+	 * @param checkpointFile 	where the checkpoint is kept
+	 * @return the checkpoint, or null if there is none or it can not be read
+	 */
+	public static ImportCheckpoint read(Path checkpointFile) {
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(checkpointFile)) {
+			properties.load(in);
+			String filePath = properties.getProperty("filePath");
+			if (filePath == null) {
+				throw new IOException("no file path");
+			}
+			return new ImportCheckpoint(filePath,
+					Long.parseLong(properties.getProperty("fileSize")),
+					Long.parseLong(properties.getProperty("lastModified")),
+					Long.parseLong(properties.getProperty("offset")),
+					Long.parseLong(properties.getProperty("rowNumber")));
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Error reading import checkpoint " + checkpointFile + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Removes a checkpoint after its import has finished.
+	 *
+	 * @param checkpointFile 	where the checkpoint is kept
+	 * @throws IOException if the checkpoint can not be removed
+	 */
+	public static void delete(Path checkpointFile) throws IOException {
+		Files.deleteIfExists(checkpointFile);
+	}
+
+	@Override
+	public String toString() {
+		return filePath + " at row " + rowNumber + " (byte " + offset + ")";
+	}
+}
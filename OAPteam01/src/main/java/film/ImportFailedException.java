@@ -0,0 +1,36 @@
+package film;
+
+/**
+ * Thrown when an import stops part way through. It carries the {@link ImportResult} of the rows handled before
+ * the failure: the films it lists as imported have been committed and stay in the database, so the caller can
+ * show what was imported as well as why the import stopped.
+ *
+ * @author Erica Laub Varpe
+ */
+public class ImportFailedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ImportResult result;
+
+    /**
+     * Creates an exception for an import that failed.
+     *
+     * @param message 	the description of the failure
+     * @param cause 	the failure that stopped the import
+     * @param result 	the result of the rows handled before the failure
+     */
+    public ImportFailedException(String message, Throwable cause, ImportResult result) {
+        super(message, cause);
+        this.result = result;
+    }
+
+    /**
+     * Returns the result of the rows handled before the failure. Films listed as imported have been committed.
+     *
+     * @return the partial import result
+     */
+    public ImportResult getResult() {
+        return result;
+    }
+}
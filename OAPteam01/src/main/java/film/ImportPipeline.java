@@ -0,0 +1,384 @@
+package film;
+
+import db.DatabaseConnection;
+import db.FilmDAO;
+import db.GenreCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports films from a CSV file in three stages that run at the same time:
+ * <ol>
+ *   <li>The calling thread reads the file and groups the rows into chunks of one batch each.</li>
+ *   <li>Validator threads turn the rows into films, resolve their genres through one shared
+ *       {@link GenreCache} and skip duplicates with one shared {@link DuplicateDetector}. Each validator
+ *       looks up genres and possible duplicates on a connection of its own, so lookups do not wait for
+ *       each other.</li>
+ *   <li>Writer threads each own a connection, insert the films of a batch and commit it.</li>
+ * </ol>
+ *
+ * <p>The stages are connected by bounded queues of two chunks per worker. A stage that gets ahead waits
+ * for the next one to catch up, so the memory an import needs stays the same however large the file is.
+ *
+ * <p>Every row ends up in the {@link ImportResult}: rows that are invalid, have an unknown genre or are duplicates
+ * are recorded by the validators, and every film of a batch is recorded as imported or failed by its writer, exactly
+ * as in a single threaded import. A film only counts as imported once its batch has been committed. If a stage
+ * fails, the other stages stop and the failure is rethrown from
+ * {@link #run(CsvRowReader, ImportCheckpoint, ImportResult)}; batches committed before that stay in the database.
+ *
+ * <p>Since the writers commit batches in whatever order they finish, a checkpoint only moves past a chunk of
+ * rows once every chunk before it has been committed too. An import that continues after the checkpoint may
+ * therefore read some batches that were committed after it again, but never skips a row. With duplicate
+ * detection on, the films of those batches are skipped as duplicates instead of being imported twice.
+ *
+ * @author Erica Laub Varpe
+ */
+class ImportPipeline {
+
+	/** How long a stage waits on a queue before it checks whether another stage has failed, in milliseconds */
+	private static final long POLL_MILLIS = 100;
+
+	/** Marks the end of the rows of the file */
+	private static final Chunk NO_MORE_ROWS = new Chunk(-1, Collections.<String[]>emptyList(), null);
+
+	/** Marks the end of the batches to write */
+	private static final Batch END = new Batch(null, Collections.<Film>emptyList(), new int[0]);
+
+	private final int workerCount;
+	private final int batchSize;
+	private final boolean autoCreateGenres;
+	private final boolean skipDuplicates;
+	private final Path checkpointFile;
+	private final int commitInterval;
+
+	private final BlockingQueue<Chunk> rows;
+	private final BlockingQueue<Batch> batches;
+
+	/** The last checkpoint written, or the one the import started at. Guarded by this. */
+	private ImportCheckpoint checkpoint;
+
+	/** The end of the part of the file committed without a gap, which may be ahead of the last checkpoint. Guarded by this. */
+	private ImportCheckpoint committed;
+
+	/** The chunk after the committed part of the file. Guarded by this. */
+	private long nextChunk;
+
+	/** Chunks that are done while an earlier chunk is not, by chunk number. Guarded by this. */
+	private final Map<Long, ImportCheckpoint> doneChunks = new HashMap<>();
+
+	/** The first failure of any stage, or null while all stages are running */
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	/**
+	 * Creates a pipeline.
+	 *
+	 * @param workerCount 		the number of validator threads and of writer threads
+	 * @param batchSize 		the number of films per batch
+	 * @param autoCreateGenres 	whether genres that do not exist are created
+	 * @param skipDuplicates 	whether films already in the database or earlier in the file are skipped
+	 * @param checkpointFile 	where to write checkpoints, or null to write none
+	 * @param commitInterval 	the least number of rows between checkpoints
+	 */
+	ImportPipeline(int workerCount, int batchSize, boolean autoCreateGenres, boolean skipDuplicates,
+			Path checkpointFile, int commitInterval) {
+		this.workerCount = workerCount;
+		this.batchSize = batchSize;
+		this.autoCreateGenres = autoCreateGenres;
+		this.skipDuplicates = skipDuplicates;
+		this.checkpointFile = checkpointFile;
+		this.commitInterval = commitInterval;
+		this.rows = new ArrayBlockingQueue<>(2 * workerCount);
+		this.batches = new ArrayBlockingQueue<>(2 * workerCount);
+	}
+
+	/**
+	 * Imports every row of a CSV file, returning when all batches have been committed.
+	 *
+	 * @param reader 		the file, positioned at the first row to import
+	 * @param start 		the checkpoint the reader is positioned at
+	 * @param result 		the import result to record every film in
+	 * @throws Exception if a stage fails; the first failure is thrown
+	 */
+	void run(CsvRowReader reader, ImportCheckpoint start, ImportResult result) throws Exception {
+		synchronized (this) {
+			checkpoint = start;
+			committed = start;
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService threads = Executors.newFixedThreadPool(2 * workerCount, task -> {
+			Thread thread = new Thread(task, "film-import-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			GenreCache genreCache = new GenreCache();
+			genreCache.setAutoCreate(autoCreateGenres);
+			DuplicateDetector duplicates = skipDuplicates ? loadDuplicates(start) : null;
+
+			List<Future<?>> validators = new ArrayList<>();
+			List<Future<?>> writers = new ArrayList<>();
+			for (int i = 0; i < workerCount; i++) {
+				validators.add(threads.submit(() -> validate(genreCache, duplicates, result)));
+				writers.add(threads.submit(() -> write(duplicates, result)));
+			}
+
+			try {
+				read(reader, start);
+			} catch (Exception e) {
+				fail(e);
+			}
+			await(validators);
+			for (int i = 0; i < workerCount; i++) {
+				put(batches, END);
+			}
+			await(writers);
+		} catch (Exception e) {
+			fail(e);
+		} finally {
+			threads.shutdownNow();
+		}
+
+		Throwable first = failure.get();
+		if (first != null) {
+			saveProgress();
+		}
+		if (first instanceof Exception) {
+			throw (Exception) first;
+		} else if (first != null) {
+			throw new Exception(first);
+		}
+	}
+
+	/**
+	 * Creates the duplicate detector of the import, reading the films in the database on a connection that is
+	 * closed again before the stages start.
+	 */
+	private DuplicateDetector loadDuplicates(ImportCheckpoint start) throws Exception {
+		try (Connection conn = DatabaseConnection.getConnection();
+			 FilmDAO filmDAO = new FilmDAO(conn, batchSize)) {
+			return DuplicateDetector.load(filmDAO, start);
+		}
+	}
+
+	/**
+	 * Reads the file into chunks of rows and hands them to the validators.
+	 */
+	private void read(CsvRowReader reader, ImportCheckpoint start) throws Exception {
+		long chunkNumber = 0;
+		List<String[]> chunk = new ArrayList<>(batchSize);
+		String[] row;
+		while (failure.get() == null && (row = FilmImportService.readRow(reader)) != null) {
+			chunk.add(row);
+			if (chunk.size() == batchSize) {
+				put(rows, new Chunk(chunkNumber++, chunk, start.advance(reader.getOffset(), reader.getRowNumber())));
+				chunk = new ArrayList<>(batchSize);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			put(rows, new Chunk(chunkNumber, chunk, start.advance(reader.getOffset(), reader.getRowNumber())));
+		}
+		for (int i = 0; i < workerCount; i++) {
+			put(rows, NO_MORE_ROWS); // one end marker per validator
+		}
+	}
+
+	/**
+	 * Turns chunks of rows into batches of films with known genres that are not duplicates, until the end of the file.
+	 * Genres and possible duplicates are looked up on a connection of its own.
+	 */
+	private Void validate(GenreCache genreCache, DuplicateDetector duplicates, ImportResult result) throws Exception {
+		try (Connection lookupConnection = DatabaseConnection.getConnection();
+			 FilmDAO lookupDAO = new FilmDAO(lookupConnection, batchSize)) {
+			Chunk chunk;
+			while ((chunk = take(rows)) != null && chunk != NO_MORE_ROWS) {
+				List<Film> films = new ArrayList<>(chunk.rows.size());
+				List<String> genreNames = new ArrayList<>(chunk.rows.size());
+				for (String[] row : chunk.rows) {
+					Film film = FilmImportService.toFilm(row, result);
+					if (film != null) {
+						films.add(film);
+						genreNames.add(film.getGenre());
+					}
+				}
+				Map<String, Integer> knownGenres = genreCache.getGenreIds(lookupConnection, genreNames);
+
+				List<Film> batch = new ArrayList<>(films.size());
+				for (Film film : films) {
+					if (knownGenres.containsKey(film.getGenre())) {
+						batch.add(film);
+					} else {
+						result.addFailedImport(film, "Genre not found: " + film.getGenre());
+					}
+				}
+				if (duplicates != null) {
+					batch = duplicates.skipDuplicates(batch, lookupDAO, result);
+				}
+				int[] genreIds = new int[batch.size()];
+				for (int i = 0; i < batch.size(); i++) {
+					genreIds[i] = knownGenres.get(batch.get(i).getGenre());
+				}
+				if (batch.isEmpty()) {
+					chunkDone(chunk.number, chunk.end); // nothing to write
+				} else {
+					put(batches, new Batch(chunk, batch, genreIds));
+				}
+			}
+			return null;
+		} catch (Exception e) {
+			fail(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Inserts and commits batches of films on a connection of its own, until the validators are done.
+	 */
+	private Void write(DuplicateDetector duplicates, ImportResult result) throws Exception {
+		try (Connection conn = DatabaseConnection.getConnection();
+			 FilmDAO filmDAO = new FilmDAO(conn, batchSize)) {
+			conn.setAutoCommit(false);
+			Batch batch;
+			while ((batch = take(batches)) != null && batch != END) {
+				ImportResult inserted = new ImportResult();
+				try {
+					FilmImportService.insertBatch(conn, filmDAO, batch.films, batch.genreIds, inserted, result);
+					FilmImportService.commit(conn, inserted, result);
+				} catch (Exception e) {
+					result.addFailedImports(inserted, "Rolled back: " + e.getMessage());
+					throw e;
+				}
+				if (duplicates != null) {
+					duplicates.inserted(batch.films);
+				}
+				chunkDone(batch.chunk.number, batch.chunk.end);
+			}
+			return null;
+		} catch (Exception e) {
+			fail(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Records that every row of a chunk has been committed or rejected, and writes a checkpoint when the
+	 * chunks committed without a gap since the last checkpoint hold at least the commit interval of rows.
+	 *
+	 * @param number 	the number of the chunk
+	 * @param end 		the checkpoint just after the last row of the chunk
+	 */
+	private synchronized void chunkDone(long number, ImportCheckpoint end) throws Exception {
+		doneChunks.put(number, end);
+		while (doneChunks.containsKey(nextChunk)) {
+			committed = doneChunks.remove(nextChunk++);
+		}
+		if (checkpointFile != null && committed.getRowNumber() - checkpoint.getRowNumber() >= commitInterval) {
+			committed.write(checkpointFile);
+			checkpoint = committed;
+		}
+	}
+
+	/**
+	 * Writes a checkpoint at the end of the part of the file committed without a gap, after a failure
+	 * stopped the import before the next regular checkpoint.
+	 */
+	private synchronized void saveProgress() {
+		if (checkpointFile == null || committed == checkpoint) {
+			return;
+		}
+		try {
+			committed.write(checkpointFile);
+			checkpoint = committed;
+		} catch (IOException e) {
+			System.err.println("Error writing import checkpoint " + checkpointFile + ": " + e.getMessage());
+		}
+	}
+
+	private void fail(Throwable e) {
+		failure.compareAndSet(null, e);
+	}
+
+	/**
+	 * Waits for the given stage threads to finish. Their failures have already been recorded.
+	 */
+	private void await(List<Future<?>> stage) throws InterruptedException {
+		for (Future<?> future : stage) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				// recorded by the stage itself
+			}
+		}
+	}
+
+	/**
+	 * Adds an item to a queue, waiting while it is full.
+	 *
+	 * @throws InterruptedException if another stage failed while waiting
+	 */
+	private <T> void put(BlockingQueue<T> queue, T item) throws InterruptedException {
+		while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+			if (failure.get() != null) {
+				throw new InterruptedException("Import stopped after a failure");
+			}
+		}
+	}
+
+	/**
+	 * Takes an item from a queue, waiting while it is empty.
+	 *
+	 * @return the item, or null if another stage has failed
+	 */
+	private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+		T item = null;
+		while (failure.get() == null && item == null) {
+			item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		return failure.get() == null ? item : null;
+	}
+
+	/**
+	 * A numbered chunk of rows as read from the file, with the checkpoint just after its last row.
+	 */
+	private static final class Chunk {
+		private final long number;
+		private final List<String[]> rows;
+		private final ImportCheckpoint end;
+
+		private Chunk(long number, List<String[]> rows, ImportCheckpoint end) {
+			this.number = number;
+			this.rows = rows;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * The films of one batch with the category ID of each film, in the same order, and the chunk they were read in.
+	 */
+	private static final class Batch {
+		private final Chunk chunk;
+		private final List<Film> films;
+		private final int[] genreIds;
+
+		private Batch(Chunk chunk, List<Film> films, int[] genreIds) {
+			this.chunk = chunk;
+			this.films = films;
+			this.genreIds = genreIds;
+		}
+	}
+}
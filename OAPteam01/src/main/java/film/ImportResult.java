@@ -5,8 +5,15 @@ import java.util.List;
 
 /**
  * Represents the result of a film import operation.
- * Tracks both successful and failed film imports, maintaining separate lists
- * for each category along with relevant metadata.
+ * Tracks successful and failed film imports, and films skipped as duplicates, maintaining
+ * separate lists for each category along with relevant metadata.
+ * 
+ * <p>The counts are always exact, but each list keeps at most a fixed number of films, so that
+ * importing a very large file does not keep every film in memory. The limit is given by the
+ * film.import.maxListedFilms system property (default 10000).
+ * 
+ * <p>Films can be added from several threads at once. The lists should only be read after the import
+ * has finished.
  * 
  * @author Erica Laub Varpe
  */
@@ -21,41 +28,167 @@ public class ImportResult {
      * List of films that failed to import
      */
     private List<Film> failedImports;
+    
+    /**
+     * List of films skipped because they were already in the database or earlier in the file
+     */
+    private List<Film> skippedDuplicates;
+    
+    /**
+     * Number of successfully imported films, including those not kept in the list
+     */
+    private int totalSuccessful;
+    
+    /**
+     * Number of films that failed to import, including those not kept in the list
+     */
+    private int totalFailed;
+    
+    /**
+     * Number of films skipped as duplicates, including those not kept in the list
+     */
+    private int totalSkipped;
+    
+    /**
+     * The most films kept in each list
+     */
+    private final int maxListedFilms;
+    
+    /**
+     * Wall clock time the import took, in milliseconds
+     */
+    private long elapsedMillis;
+    
+    /**
+     * Number of rows committed by an earlier, interrupted import that this import continued after
+     */
+    private long resumedFromRow;
 
     /**
-     * Initializes a new ImportResult with empty lists for successful and failed imports.
+     * Initializes a new ImportResult with empty lists for successful, failed and skipped imports,
+     * each keeping at most film.import.maxListedFilms films (default 10000).
      */
     public ImportResult() {
+        this(Integer.getInteger("film.import.maxListedFilms", 10_000));
+    }
+    
+    /**
+     * Initializes a new ImportResult with empty lists for successful, failed and skipped imports.
+     * 
+     * @param maxListedFilms The most films kept in each list; further films are only counted
+     */
+    public ImportResult(int maxListedFilms) {
+        if (maxListedFilms < 0) {
+            throw new IllegalArgumentException("Maximum number of listed films can not be negative: " + maxListedFilms);
+        }
+        this.maxListedFilms = maxListedFilms;
         this.successfulImports = new ArrayList<>();
         this.failedImports = new ArrayList<>();
+        this.skippedDuplicates = new ArrayList<>();
     }
     
     /**
-     * Adds a film to the list of successful imports.
+     * Adds a film to the list of successful imports, or only counts it if the list is full.
      * Sets the film's import status to successful.
      * 
      * @param film The successfully imported film to add
      */
-    public void addSuccessfulImport(Film film) {
+    public synchronized void addSuccessfulImport(Film film) {
         film.setImportSuccess(true);
-        successfulImports.add(film);
+        totalSuccessful++;
+        if (successfulImports.size() < maxListedFilms) {
+            successfulImports.add(film);
+        }
     }
     
     /**
-     * Adds a film to the list of failed imports.
+     * Adds a film to the list of failed imports, or only counts it if the list is full.
      * Sets the film's import status to failed and records the failure reason.
      * 
      * @param film The film that failed to import
      * @param reason The reason for the import failure
      */
-    public void addFailedImport(Film film, String reason) {
+    public synchronized void addFailedImport(Film film, String reason) {
+        film.setImportSuccess(false);
+        film.setFailureReason(reason);
+        totalFailed++;
+        if (failedImports.size() < maxListedFilms) {
+            failedImports.add(film);
+        }
+    }
+    
+    /**
+     * Adds a film to the list of films skipped as duplicates, or only counts it if the list is full.
+     * Sets the film's import status to failed and records why it was skipped.
+     * 
+     * @param film The film that was skipped
+     * @param reason Whether the film was already in the database or earlier in the file
+     */
+    public synchronized void addSkippedDuplicate(Film film, String reason) {
         film.setImportSuccess(false);
         film.setFailureReason(reason);
-        failedImports.add(film);
+        totalSkipped++;
+        if (skippedDuplicates.size() < maxListedFilms) {
+            skippedDuplicates.add(film);
+        }
     }
     
     /**
-     * Gets the list of successfully imported films.
+     * Moves the successful imports of another result into this one, for example once the transaction they
+     * were inserted in has been committed. The other result is left without successful imports.
+     * 
+     * @param inserted The result holding the films to add as successful imports
+     */
+    public void addSuccessfulImports(ImportResult inserted) {
+        List<Film> films;
+        int total;
+        synchronized (inserted) {
+            films = inserted.successfulImports;
+            total = inserted.totalSuccessful;
+            inserted.successfulImports = new ArrayList<>();
+            inserted.totalSuccessful = 0;
+        }
+        synchronized (this) {
+            for (Film film : films) {
+                if (successfulImports.size() < maxListedFilms) {
+                    successfulImports.add(film);
+                }
+            }
+            totalSuccessful += total;
+        }
+    }
+    
+    /**
+     * Moves the successful imports of another result into this one as failed imports, for example when the
+     * transaction they were inserted in has been rolled back. The other result is left without successful imports.
+     * 
+     * @param inserted The result holding the films to add as failed imports
+     * @param reason The reason for the import failure
+     */
+    public void addFailedImports(ImportResult inserted, String reason) {
+        List<Film> films;
+        int total;
+        synchronized (inserted) {
+            films = inserted.successfulImports;
+            total = inserted.totalSuccessful;
+            inserted.successfulImports = new ArrayList<>();
+            inserted.totalSuccessful = 0;
+        }
+        synchronized (this) {
+            for (Film film : films) {
+                film.setImportSuccess(false);
+                film.setFailureReason(reason);
+                if (failedImports.size() < maxListedFilms) {
+                    failedImports.add(film);
+                }
+            }
+            totalFailed += total;
+        }
+    }
+    
+    /**
+     * Gets the list of successfully imported films. It holds only the first films if more were
+     * imported than the list keeps, see {@link #isComplete()}.
      * 
      * @return List of successfully imported Film objects
      */
@@ -64,7 +197,8 @@ public class ImportResult {
     	}
     
     /**
-     * Gets the list of films that failed to import.
+     * Gets the list of films that failed to import. It holds only the first films if more failed
+     * than the list keeps, see {@link #isComplete()}.
      * 
      * @return List of Film objects that failed to import
      */
@@ -72,13 +206,23 @@ public class ImportResult {
     	return failedImports; 
     	}
     
+    /**
+     * Gets the list of films skipped as duplicates. It holds only the first films if more were
+     * skipped than the list keeps, see {@link #isComplete()}.
+     * 
+     * @return List of Film objects that were skipped, with the reason as their failure reason
+     */
+    public List<Film> getSkippedDuplicates() { 
+    	return skippedDuplicates; 
+    	}
+    
     /**
      * Gets the total number of successfully imported films.
      * 
      * @return The count of successful imports
      */
-    public int getTotalSuccessful() { 
-    	return successfulImports.size(); 
+    public synchronized int getTotalSuccessful() { 
+    	return totalSuccessful; 
     	}
     
     /**
@@ -86,7 +230,75 @@ public class ImportResult {
      * 
      * @return The count of failed imports
      */
-    public int getTotalFailed() { 
-    	return failedImports.size(); 
+    public synchronized int getTotalFailed() { 
+    	return totalFailed; 
+    	}
+    
+    /**
+     * Gets the total number of films skipped as duplicates.
+     * 
+     * @return The count of skipped films
+     */
+    public synchronized int getTotalSkipped() { 
+    	return totalSkipped; 
+    	}
+    
+    /**
+     * Gets whether the lists hold every successful, failed and skipped film.
+     * 
+     * @return true if no film was left out of the lists, false if only the counts are complete
+     */
+    public synchronized boolean isComplete() {
+    	return successfulImports.size() == totalSuccessful && failedImports.size() == totalFailed
+    			&& skippedDuplicates.size() == totalSkipped;
+    	}
+    
+    /**
+     * Gets the wall clock time the import took.
+     * 
+     * @return The duration of the import in milliseconds
+     */
+    public long getElapsedMillis() {
+    	return elapsedMillis;
+    	}
+    
+    /**
+     * Sets the wall clock time the import took.
+     * 
+     * @param elapsedMillis The duration of the import in milliseconds
+     */
+    public void setElapsedMillis(long elapsedMillis) {
+    	this.elapsedMillis = elapsedMillis;
+    	}
+    
+    /**
+     * Gets the number of rows an interrupted import had committed before this import continued it.
+     * The films of those rows are not part of this result.
+     * 
+     * @return The number of rows skipped at the start of the file, or 0 if the import started at the first row
+     */
+    public long getResumedFromRow() {
+    	return resumedFromRow;
+    	}
+    
+    /**
+     * Sets the number of rows an interrupted import had committed before this import continued it.
+     * 
+     * @param resumedFromRow The number of rows skipped at the start of the file
+     */
+    public void setResumedFromRow(long resumedFromRow) {
+    	this.resumedFromRow = resumedFromRow;
+    	}
+    
+    /**
+     * Gets the import throughput, counting successful, failed and skipped films.
+     * 
+     * @return The number of processed films per second, or 0 if no time has been recorded
+     */
+    public double getFilmsPerSecond() {
+    	if (elapsedMillis <= 0) {
+    		return 0;
+    	}
+    	return (getTotalSuccessful() + getTotalFailed() + getTotalSkipped()) * 1000.0 / elapsedMillis;
     	}
 }
@@ -0,0 +1,143 @@
+package film;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Filters the positions of a catalog snapshot on several threads at once.
+ * The positions are split in halves on a ForkJoinPool until a chunk is smaller than the sequential threshold.
+ * Each chunk is filtered on its own, sorted, and cut to the result limit, and the chunks are merged pairwise
+ * while keeping only the first results. Searches over fewer positions than the threshold run sequentially on
+ * the calling thread, where splitting would cost more than it saves.
+ *
+ * <p>The number of threads defaults to the number of processors and can be changed with the
+ * film.search.parallelism system property. The threshold defaults to 8192 positions and can be changed with
+ * the film.search.sequentialThreshold system property.
+ *
+ * @author Erica Laub Varpe
+ */
+public final class ParallelCatalogSearch {
+
+    /**
+     * Decides whether the film at a position matches a search. Called from several threads at once.
+     */
+    public interface PositionFilter {
+        /**
+         * Tests the film at a position.
+         *
+         * @param position the position of the film in the snapshot
+         * @return true if the film matches
+         */
+        boolean matches(int position);
+    }
+
+    /**
+     * Gives the film at a position a sort key, for results that are not in position order.
+     */
+    public interface SortKey {
+        /**
+         * Returns the sort key of the film at a position. Films with the same key are kept in position order.
+         *
+         * @param position the position of the film in the snapshot
+         * @return the sort key, lowest first
+         */
+        int key(int position);
+    }
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Integer.getInteger("film.search.parallelism", Runtime.getRuntime().availableProcessors()));
+
+    private static final int SEQUENTIAL_THRESHOLD = Integer.getInteger("film.search.sequentialThreshold", 8192);
+
+    private ParallelCatalogSearch() {
+    }
+
+    /**
+     * Finds the positions of the films that match a filter.
+     *
+     * @param positions 	the positions to search, in ascending order, or null to search all positions below count
+     * @param count 		the number of positions to search
+     * @param filter 		decides which films match
+     * @param sortKey 		orders the results, or null to keep them in position order
+     * @param limit 		the maximum number of results, or 0 for no limit
+     * @return the positions of the first matching films, in result order
+     */
+    public static int[] search(int[] positions, int count, PositionFilter filter, SortKey sortKey, int limit) {
+        SearchTask task = new SearchTask(positions, 0, count, filter, sortKey, limit > 0 ? limit : Integer.MAX_VALUE);
+        long[] results = count < SEQUENTIAL_THRESHOLD ? task.compute() : POOL.invoke(task);
+        int[] found = new int[results.length];
+        for (int i = 0; i < results.length; i++) {
+            found[i] = (int) results[i]; // the position is in the low 32 bits of the result
+        }
+        return found;
+    }
+
+    /**
+     * Searches a range of positions. A result combines the sort key in its high 32 bits with the position in
+     * its low 32 bits, so results can be sorted and merged as plain longs.
+     */
+    private static final class SearchTask extends RecursiveTask<long[]> {
+        private final int[] positions;
+        private final int from;
+        private final int to;
+        private final PositionFilter filter;
+        private final SortKey sortKey;
+        private final int limit;
+
+        private SearchTask(int[] positions, int from, int to, PositionFilter filter, SortKey sortKey, int limit) {
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.sortKey = sortKey;
+            this.limit = limit;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return scan();
+            }
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(positions, from, middle, filter, sortKey, limit);
+            SearchTask right = new SearchTask(positions, middle, to, filter, sortKey, limit);
+            right.fork();
+            long[] leftResults = left.compute();
+            return merge(leftResults, right.join());
+        }
+
+        private long[] scan() {
+            long[] results = new long[Math.min(16, to - from)];
+            int found = 0;
+            for (int i = from; i < to; i++) {
+                int position = positions == null ? i : positions[i];
+                if (!filter.matches(position)) {
+                    continue;
+                }
+                if (found == results.length) {
+                    results = Arrays.copyOf(results, found * 2);
+                }
+                results[found++] = sortKey == null ? position : ((long) sortKey.key(position) << 32) | position;
+                if (sortKey == null && found == limit) {
+                    break; // positions are scanned in ascending order, so these are the first results
+                }
+            }
+            results = Arrays.copyOf(results, found);
+            if (sortKey != null) {
+                Arrays.sort(results);
+            }
+            return results.length > limit ? Arrays.copyOf(results, limit) : results;
+        }
+
+        private long[] merge(long[] left, long[] right) {
+            long[] merged = new long[Math.min(limit, left.length + right.length)];
+            int l = 0;
+            int r = 0;
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] = r == right.length || (l < left.length && left[l] <= right[r]) ? left[l++] : right[r++];
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Completes partial film titles for type-ahead search.
+ * Titles are kept in a sorted index on their lower case form, so all titles starting with a prefix are
+ * next to each other and the first completions are found with a single O(log n) seek, followed by
+ * reading at most a few entries. With a million titles a lookup takes a few microseconds.
+ *
+ * <p>The index is a concurrent skip list, so titles can be added while other threads are looking up
+ * completions, and new films are available for suggestions as soon as they are added.
+ *
+ * @author Erica Laub Varpe
+ */
+public class TitleSuggester {
+
+	/** Separates the title from the film ID in an index key, and sorts before every character of a title */
+	private static final char KEY_SEPARATOR = '\u0000';
+
+	/** Maps lower case title plus film ID to the title as it is displayed */
+	private final ConcurrentSkipListMap<String, String> titles = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Creates a suggester for the given films.
+	 *
+	 * @param films 	the films whose titles can be suggested
+	 */
+	public TitleSuggester(Collection<Film> films) {
+		addAll(films);
+	}
+
+	/**
+	 * Adds the titles of some films, for example films that have just been imported.
+	 *
+	 * @param films 	the films to add
+	 */
+	public void addAll(Collection<Film> films) {
+		for (Film film : films) {
+			if (film.getTitle() != null) {
+				titles.put(CatalogSnapshot.normalize(film.getTitle()) + KEY_SEPARATOR + film.getFilmId(), film.getTitle());
+			}
+		}
+	}
+
+	/**
+	 * Returns the titles that start with the given text, not case sensitive, in alphabetical order.
+	 * A title shared by several films is only suggested once.
+	 *
+	 * @param prefix 		the start of the title typed so far
+	 * @param maxResults 	the maximum number of titles to return
+	 * @return up to maxResults completed titles, or an empty list if the prefix is empty or nothing matches
+	 */
+	public List<String> suggest(String prefix, int maxResults) {
+		String start = CatalogSnapshot.normalize(prefix).trim();
+		if (start.isEmpty() || maxResults < 1) {
+			return new ArrayList<>();
+		}
+		ConcurrentNavigableMap<String, String> matches = titles.subMap(start, true, start + Character.MAX_VALUE, true);
+		Set<String> suggestions = new LinkedHashSet<>();
+		for (String title : matches.values()) {
+			suggestions.add(title);
+			if (suggestions.size() == maxResults) {
+				break;
+			}
+		}
+		return new ArrayList<>(suggestions);
+	}
+
+	/**
+	 * Returns the number of titles in the index.
+	 *
+	 * @return the number of indexed films
+	 */
+	public int size() {
+		return titles.size();
+	}
+}
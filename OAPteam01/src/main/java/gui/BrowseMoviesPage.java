@@ -1,6 +1,9 @@
 package gui;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
@@ -9,17 +12,23 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.List;
 import film.FilmViewHandler;
+import film.CatalogFilmHandler;
 import film.FilmManager;
 import review.ReviewManager;
 
 /**
  * The BrowseMoviesPage class represents the GUI for browsing and searching movies.
  * It extends BaseGUI and provides functionality for searching movies, displaying movie information,
- * and showing reviews.
+ * and showing reviews. While a title is typed, matching titles are suggested below the search bar.
  * 
  * @author Stine Andreassen Skrøder
  */
 public class BrowseMoviesPage extends BaseGUI {
+    /** How long typing must pause before title suggestions are looked up, in milliseconds */
+    private static final int SUGGESTION_DELAY_MILLIS = 150;
+    /** Maximum number of title suggestions shown */
+    private static final int MAX_SUGGESTIONS = 10;
+    
     private JTextField searchBar;
     private JButton searchButton;
     private JButton showAllButton;
@@ -28,13 +37,17 @@ public class BrowseMoviesPage extends BaseGUI {
     private JComboBox<String> searchTypeComboBox;
     private FilmViewHandler filmViewHandler;
 	private ReviewManager reviewManager;
+	private CatalogFilmHandler catalog;
+	private JPopupMenu suggestionPopup;
+	private Timer suggestionTimer;
 
 	/**
      * Constructs a new BrowseMoviesPage, initializing the UI components and setting up event listeners.
      */
     public BrowseMoviesPage() {
         super("Browse Movies");
-        filmViewHandler = new FilmManager();
+        catalog = CatalogFilmHandler.getSharedCatalog();
+        filmViewHandler = new FilmManager(catalog);
         this.reviewManager = new ReviewManager();
         initializeBrowseMoviesPanel();
         initializeListeners();
@@ -57,8 +70,11 @@ public class BrowseMoviesPage extends BaseGUI {
         showAllReviewsButton = new JButton("Show All Reviews");
 
         // Initialize search type combo box
-        String[] searchTypes = {"Title", "Genre", "Year"};
+        String[] searchTypes = {"Title", "Genre", "Year", "Title and description"};
         searchTypeComboBox = new JComboBox<>(searchTypes);
+        
+        suggestionPopup = new JPopupMenu();
+        suggestionPopup.setFocusable(false); // keep typing in the search bar while suggestions are shown
 
         // Create a panel for search bar and buttons
         JPanel searchPanel = new JPanel();
@@ -74,8 +90,26 @@ public class BrowseMoviesPage extends BaseGUI {
         String[] columnNames = {"Title", "Release Year", "Genre", "Description"};
         filmView = new DefaultTableModel(columnNames, 0);
         JTable table = new JTable(filmView);
+        JScrollPane tableScrollPane = new JScrollPane(table);
+        
+        browsePanel.add(tableScrollPane, BorderLayout.CENTER);
+        
+        // Load the descriptions of the rows that become visible, when scrolling or when rows are added
+        tableScrollPane.getViewport().addChangeListener(e -> loadVisibleDescriptions(table));
+        filmView.addTableModelListener(e -> {
+            if (e.getType() == TableModelEvent.INSERT) {
+                SwingUtilities.invokeLater(() -> loadVisibleDescriptions(table));
+            }
+        });
         
-        browsePanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        // Load the next page of films when the user scrolls close to the bottom of the table
+        tableScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar scrollBar = (JScrollBar) e.getAdjustable();
+            int distanceToBottom = scrollBar.getMaximum() - (scrollBar.getValue() + scrollBar.getVisibleAmount());
+            if (distanceToBottom < table.getRowHeight() * 10) {
+                filmViewHandler.loadMoreFilms();
+            }
+        });
 
         table.addMouseListener(new MouseAdapter() {
             @Override
@@ -107,6 +141,8 @@ public class BrowseMoviesPage extends BaseGUI {
         searchButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                suggestionTimer.stop();
+                suggestionPopup.setVisible(false);
                 String searchText = searchBar.getText();
                 String searchType = (String) searchTypeComboBox.getSelectedItem();
                 
@@ -126,6 +162,9 @@ public class BrowseMoviesPage extends BaseGUI {
                                 JOptionPane.showMessageDialog(null, "Invalid year format", "Error", JOptionPane.ERROR_MESSAGE);
                             }
                             break;
+                        case "Title and description":
+                            filmViewHandler.updateFilmViewFullText(searchText);
+                            break;
                     }
                 } else {
                     JOptionPane.showMessageDialog(null, "Search text can't be empty", "Error", JOptionPane.ERROR_MESSAGE);
@@ -133,6 +172,32 @@ public class BrowseMoviesPage extends BaseGUI {
             }
         });
 
+        // Look up title suggestions once the user pauses typing, instead of on every keystroke
+        suggestionTimer = new Timer(SUGGESTION_DELAY_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showTitleSuggestions();
+            }
+        });
+        suggestionTimer.setRepeats(false);
+        
+        searchBar.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                suggestionTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                suggestionTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes do not change the text
+            }
+        });
+
         showAllButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -147,6 +212,55 @@ public class BrowseMoviesPage extends BaseGUI {
             }
         });
     }
+    
+    /**
+     * Asks the film view handler for the descriptions of the rows currently visible in the table,
+     * since films are listed without their descriptions.
+     *
+     * @param table The table showing the films
+     */
+    private void loadVisibleDescriptions(JTable table) {
+        Rectangle visible = table.getVisibleRect();
+        int firstRow = table.rowAtPoint(visible.getLocation());
+        if (firstRow == -1) {
+            return;
+        }
+        int lastRow = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        filmViewHandler.loadDescriptions(firstRow, lastRow == -1 ? table.getRowCount() - 1 : lastRow);
+    }
+    
+    /**
+     * Shows the titles starting with the text of the search bar in a popup below it, when searching by title.
+     * Choosing a suggestion searches for that title. Nothing is shown until the film catalog has been loaded,
+     * so typing never waits for the database.
+     */
+    private void showTitleSuggestions() {
+        suggestionPopup.setVisible(false);
+        if (!"Title".equals(searchTypeComboBox.getSelectedItem()) || !catalog.isLoaded()) {
+            return;
+        }
+        
+        List<String> titles = catalog.getTitleSuggester().suggest(searchBar.getText(), MAX_SUGGESTIONS);
+        if (titles.isEmpty()) {
+            return;
+        }
+        
+        suggestionPopup.removeAll();
+        for (String title : titles) {
+            JMenuItem item = new JMenuItem(title);
+            item.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    searchBar.setText(title);
+                    suggestionTimer.stop();
+                    filmViewHandler.updateFilmViewTitle(title);
+                }
+            });
+            suggestionPopup.add(item);
+        }
+        suggestionPopup.show(searchBar, 0, searchBar.getHeight());
+    }
+    
     /**
      * Loads and displays all reviews in a separate dialog.
      * If no reviews are available, displays an information message.
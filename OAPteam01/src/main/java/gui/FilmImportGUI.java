@@ -4,10 +4,12 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import film.FilmImportService;
+import film.ImportFailedException;
 import film.ImportResult;
 
 import java.awt.*;
 import java.io.File;
+import java.util.concurrent.ExecutionException;
 
 /**
  * A graphical user interface for importing films from CSV files.
@@ -157,19 +159,20 @@ public class FilmImportGUI extends BaseGUI {
                         try {
                             ImportResult result = get();
                             logArea.append("Import completed!\n");
-                            logArea.append("Successfully imported: " + result.getTotalSuccessful() + " films\n");
-                            logArea.append("Failed to import: " + result.getTotalFailed() + " films\n");
-                            
-                            // Show the summary dialog
-                            ImportSummaryDialog summaryDialog = new ImportSummaryDialog(FilmImportGUI.this, result);
-                            summaryDialog.setVisible(true);
+                            showResult(result);
                             
                         } catch (Exception ex) {
+                            Throwable error = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
                             logArea.append("An error occurred during the import.\n");
                             JOptionPane.showMessageDialog(FilmImportGUI.this,
-                                "An error occurred: " + ex.getMessage(),
+                                "An error occurred: " + error.getMessage(),
                                 "Import Failed",
                                 JOptionPane.ERROR_MESSAGE);
+                            // The films imported before the error stay in the database, so show them too
+                            if (error instanceof ImportFailedException) {
+                                logArea.append("Results up to the error:\n");
+                                showResult(((ImportFailedException) error).getResult());
+                            }
                         }
                     }
                 }.execute();
@@ -190,4 +193,26 @@ public class FilmImportGUI extends BaseGUI {
         contentPanel.revalidate();
         contentPanel.repaint();
     }
+    
+    /**
+     * Logs the counts of an import result and shows its summary dialog.
+     * 
+     * @param result The result of a finished or failed import
+     */
+    private void showResult(ImportResult result) {
+        if (result.getResumedFromRow() > 0) {
+            logArea.append("Continued an interrupted import after row " + result.getResumedFromRow() + "\n");
+        }
+        logArea.append("Successfully imported: " + result.getTotalSuccessful() + " films\n");
+        logArea.append("Failed to import: " + result.getTotalFailed() + " films\n");
+        if (result.getTotalSkipped() > 0) {
+            logArea.append("Skipped as duplicates: " + result.getTotalSkipped() + " films\n");
+        }
+        logArea.append(String.format("Time used: %d ms (%.0f films per second)%n",
+                result.getElapsedMillis(), result.getFilmsPerSecond()));
+        
+        // Show the summary dialog
+        ImportSummaryDialog summaryDialog = new ImportSummaryDialog(FilmImportGUI.this, result);
+        summaryDialog.setVisible(true);
+    }
 }
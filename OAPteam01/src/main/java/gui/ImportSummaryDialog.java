@@ -7,7 +7,7 @@ import java.awt.*;
 
 /**
  * A dialog window that displays a summary of film import results.
- * Shows both successful and failed imports in a tabbed interface with detailed information
+ * Shows successful, failed and skipped imports in a tabbed interface with detailed information
  * about each imported film.
  * @author Erica Laub Varpe
  */
@@ -27,9 +27,15 @@ public class ImportSummaryDialog extends JDialog {
         mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
         // Summary panel
-        JPanel summaryPanel = new JPanel(new GridLayout(2, 1, 5, 5));
+        JPanel summaryPanel = new JPanel(new GridLayout(0, 1, 5, 5));
         summaryPanel.add(new JLabel("Successfully imported: " + result.getTotalSuccessful() + " films"));
         summaryPanel.add(new JLabel("Failed to import: " + result.getTotalFailed() + " films"));
+        if (result.getTotalSkipped() > 0) {
+            summaryPanel.add(new JLabel("Skipped as duplicates: " + result.getTotalSkipped() + " films"));
+        }
+        if (!result.isComplete()) {
+            summaryPanel.add(new JLabel("Only the first films of a large import are listed below"));
+        }
         
         // Create tabs
         JTabbedPane tabbedPane = new JTabbedPane();
@@ -55,6 +61,18 @@ public class ImportSummaryDialog extends JDialog {
             tabbedPane.addTab("Failed Imports", new JScrollPane(failedArea));
         }
         
+        // Skipped duplicates tab
+        if (!result.getSkippedDuplicates().isEmpty()) {
+            JTextArea skippedArea = new JTextArea(15, 40);
+            skippedArea.setEditable(false);
+            for (Film film : result.getSkippedDuplicates()) {
+                skippedArea.append(String.format("= %s (%d) - %s\nReason: %s\n\n", 
+                    film.getTitle(), film.getReleaseYear(), film.getGenre(), 
+                    film.getFailureReason()));
+            }
+            tabbedPane.addTab("Skipped Duplicates", new JScrollPane(skippedArea));
+        }
+        
         // OK button
         JButton okButton = new JButton("OK");
         okButton.addActionListener(e -> dispose());
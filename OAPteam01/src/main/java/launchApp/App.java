@@ -2,7 +2,10 @@ package launchApp;
 
 
 
+import java.sql.SQLException;
 import javax.swing.SwingUtilities;
+import db.DatabaseConnection;
+import film.CatalogFilmHandler;
 import gui.HomePageGUI;
 import gui.LoginPage;
 
@@ -17,6 +20,23 @@ public class App {
      * @param args command line arguments (not used in this application).
      */
     public static void main(String[] args) {
+        // Open the pooled db connections and load the film catalog in the background while the login page is shown
+        Thread warmUp = new Thread(() -> {
+            try {
+                DatabaseConnection.warmUp();
+            } catch (SQLException e) {
+                System.err.println("Could not pre-warm db connections: " + e.getMessage());
+            }
+            CatalogFilmHandler.getSharedCatalog().getSnapshot();
+            if (Boolean.getBoolean("film.catalog.memoryReport")) {
+                // decodes every film of the catalog, so it is only printed on request
+                System.out.println(CatalogFilmHandler.getSharedCatalog().getMemoryReport());
+            }
+            CatalogFilmHandler.getSharedCatalog().startAutoRefresh();
+        }, "db-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+        
         // Ensure the GUI is created on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             LoginPage loginPage = new LoginPage(() -> {
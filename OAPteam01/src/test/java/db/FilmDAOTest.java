@@ -0,0 +1,125 @@
+package db;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import film.Film;
+import junit.framework.TestCase;
+
+/**
+ * Checks that FilmDAO reuses its statements. It runs against a fake in-memory connection that counts
+ * how many statements are prepared and how many batches are sent for 10k rows.
+ */
+public class FilmDAOTest extends TestCase
+{
+    private static final int ROWS = 10_000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private int prepareCount;
+    private int batchCount;
+    private int nextId;
+
+    /**
+     * One DAO for all rows prepares each statement once.
+     */
+    public void testStatementsAreReusedAcrossRows() throws SQLException
+    {
+        Connection connection = countingConnection();
+        try (FilmDAO dao = new FilmDAO(connection)) {
+            for (int i = 0; i < ROWS; i++) {
+                int filmId = dao.insertFilm(new Film("Film " + i, "Description", 2024, "Action"));
+                dao.insertFilmCategory(filmId, 1);
+            }
+            assertEquals(3, dao.getStatementsPrepared());
+        }
+        assertEquals(3, prepareCount);
+    }
+
+    /**
+     * Batched inserts prepare each statement once as well, and send one batch per statement for every
+     * batch size rows.
+     */
+    public void testBatchedInsertsReuseStatements() throws SQLException
+    {
+        Connection connection = countingConnection();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            films.add(new Film("Film " + i, "Description", 2024, "Action"));
+        }
+        try (FilmDAO dao = new FilmDAO(connection, BATCH_SIZE)) {
+            int[] filmIds = dao.insertFilms(films);
+            int[] categoryIds = new int[ROWS];
+            Arrays.fill(categoryIds, 1);
+            dao.insertFilmCategories(filmIds, categoryIds);
+            assertEquals(ROWS, nextId);
+            assertEquals(ROWS, filmIds[ROWS - 1]);
+            assertEquals(3, dao.getStatementsPrepared());
+        }
+        assertEquals(3, prepareCount);
+        assertEquals(3 * ROWS / BATCH_SIZE, batchCount);
+    }
+
+    private Connection countingConnection()
+    {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        prepareCount++;
+                        return fakeStatement();
+                    }
+                    return null;
+                });
+    }
+
+    private PreparedStatement fakeStatement()
+    {
+        int[] rows = new int[2]; // rows added to the batch, rows sent by the last execute
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addBatch":
+                            rows[0]++;
+                            return null;
+                        case "executeBatch":
+                            if (rows[0] > 0) {
+                                batchCount++; // an empty batch sends nothing
+                            }
+                            rows[1] = rows[0];
+                            rows[0] = 0;
+                            return new int[rows[1]];
+                        case "executeUpdate":
+                            rows[1] = 1;
+                            return 1;
+                        case "getGeneratedKeys":
+                            int first = nextId + 1;
+                            nextId += rows[1];
+                            return generatedKeys(first, nextId);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private ResultSet generatedKeys(int first, int last)
+    {
+        int[] current = { first - 1 };
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++current[0] <= last;
+                        case "getInt":
+                            return current[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
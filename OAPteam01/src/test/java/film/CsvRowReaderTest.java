@@ -0,0 +1,155 @@
+package film;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that CsvRowReader reads the same rows as opencsv's CSVReader, for quoted fields that span lines,
+ * CRLF line breaks and lines longer than its buffer, and that a reader opened at the offset of a row
+ * continues with the same rows as one that read the whole file.
+ */
+public class CsvRowReaderTest extends TestCase
+{
+    private Path file;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        file = Files.createTempFile("csv-row-reader", ".csv");
+    }
+
+    @Override
+    protected void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Quoted fields with line breaks, commas and escaped quotes are read like CSVReader reads them.
+     */
+    public void testQuotedMultiLineFieldsMatchCsvReader() throws Exception
+    {
+        write("title,description,releaseYear,genre\n"
+                + "\"Alien\",\"In space,\nno one can hear\nyou scream\",1979,Horror\n"
+                + "Plain,No quotes,1980,Drama\n"
+                + "\"Say \"\"hi\"\"\",\"\",1981,\"Comedy\"\n"
+                + "\n"
+                + "\"Ends\",\"without a line break\",1982,Action");
+        assertSameRows();
+        assertEquals(5, readAll(0, 0).size());
+    }
+
+    /**
+     * CRLF line breaks are removed from the ends of lines but kept inside quoted fields like CSVReader does.
+     */
+    public void testCrlfLineBreaksMatchCsvReader() throws Exception
+    {
+        write("title,description,releaseYear,genre\r\n"
+                + "\"Alien\",\"Two\r\nlines\",1979,Horror\r\n"
+                + "Plain,No quotes,1980,Drama\r\n"
+                + "\r\n"
+                + "Last,Row,1981,Comedy\r\n");
+        assertSameRows();
+    }
+
+    /**
+     * Lines longer than the buffer of the reader, which it reads in several parts, are read whole.
+     */
+    public void testLongLinesMatchCsvReader() throws Exception
+    {
+        char[] text = new char[250_000];
+        Arrays.fill(text, 'x');
+        StringBuilder csv = new StringBuilder("title,description,releaseYear,genre\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("Film ").append(i).append(",\"").append(text, 0, 50_000 * i + 1).append("\",2000,Drama\r\n");
+        }
+        write(csv.toString());
+        assertSameRows();
+    }
+
+    /**
+     * A reader opened at the offset and row number of any row reads the same rows after it as a reader that
+     * started at the beginning of the file.
+     */
+    public void testResumeAtOffsetReadsTheRemainingRows() throws Exception
+    {
+        StringBuilder csv = new StringBuilder("title,description,releaseYear,genre\r\n");
+        for (int i = 0; i < 2_000; i++) {
+            csv.append("\"Film ").append(i).append("\",\"Line one\nline ").append(i).append("\",").append(1950 + i % 70)
+                    .append(",Drama").append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        write(csv.toString());
+        List<String[]> all = readAll(0, 0);
+        assertEquals(2_000, all.size());
+
+        for (int stop : new int[] { 1, 7, 999, 1_999 }) {
+            long offset;
+            try (CsvRowReader reader = new CsvRowReader(file.toString(), 0, 0)) {
+                for (int i = 0; i < stop; i++) {
+                    reader.readRow();
+                }
+                assertEquals(stop, reader.getRowNumber());
+                offset = reader.getOffset();
+            }
+            try (CsvRowReader reader = new CsvRowReader(file.toString(), offset, stop)) {
+                String[] row;
+                int i = stop;
+                while ((row = reader.readRow()) != null) {
+                    assertTrue("Row " + (i + 1) + " after resuming at row " + stop, Arrays.equals(all.get(i), row));
+                    i++;
+                }
+                assertEquals(all.size(), i);
+                assertEquals(all.size(), reader.getRowNumber());
+                assertEquals(Files.size(file), reader.getOffset());
+            }
+        }
+    }
+
+    private void write(String csv) throws IOException
+    {
+        try (Writer out = Files.newBufferedWriter(file, Charset.defaultCharset())) {
+            out.write(csv);
+        }
+    }
+
+    private List<String[]> readAll(long offset, long rowNumber) throws IOException
+    {
+        List<String[]> rows = new ArrayList<>();
+        try (CsvRowReader reader = new CsvRowReader(file.toString(), offset, rowNumber)) {
+            String[] row;
+            while ((row = reader.readRow()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private void assertSameRows() throws IOException, CsvValidationException
+    {
+        List<String[]> expected = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new FileReader(file.toFile()))) {
+            reader.skip(1);
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                expected.add(row);
+            }
+        }
+        List<String[]> actual = readAll(0, 0);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Row " + (i + 1), Arrays.asList(expected.get(i)), Arrays.asList(actual.get(i)));
+        }
+    }
+}
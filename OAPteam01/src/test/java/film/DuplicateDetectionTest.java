@@ -0,0 +1,229 @@
+package film;
+
+import db.DatabaseConnection;
+import db.FilmDAO;
+
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that imports with duplicate detection skip films that appear earlier in the file or are already in the
+ * database, on one thread and when the copies of a film are checked by several threads at the same time, and that
+ * {@link DuplicateDetector} only takes the films in the database from a catalog that holds all of them. It runs
+ * against a {@link FakeFilmDatabase}.
+ */
+public class DuplicateDetectionTest extends TestCase
+{
+    private static final int TITLES = 1_000;
+
+    private static final int BATCH_SIZE = 50;
+
+    private FakeFilmDatabase database;
+    private Path file;
+    private Path checkpointFile;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        database = FakeFilmDatabase.install();
+        file = Files.createTempFile("duplicate-detection", ".csv");
+        checkpointFile = file.resolveSibling("duplicate-detection.checkpoint");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        Files.deleteIfExists(ImportCheckpoint.fileFor(checkpointFile, file.toString()));
+        Files.deleteIfExists(file);
+        FakeFilmDatabase.uninstall();
+    }
+
+    /**
+     * A film that appears again later in the file, in the same batch or after the batch of its first copy has
+     * been committed, is skipped, also when its title differs in case and surrounding spaces. Once the first copy
+     * has been committed, the later ones are found in the database.
+     */
+    public void testDuplicatesInFileAreSkipped() throws Exception
+    {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < TITLES; i++) {
+            rows.add(row("Film " + i, 2000));
+            if (i % 10 == 0) {
+                rows.add(row("  FILM " + i + " ", 2000));
+            }
+            if (i >= 3 * BATCH_SIZE && i % 7 == 0) {
+                rows.add(row("Film " + (i - 3 * BATCH_SIZE), 2000));
+            }
+        }
+        rows.add(row("Film 1", 2001)); // another release year is another film
+        write(rows);
+
+        ImportResult result = service(1).importFilmsFromCSV(file.toString());
+
+        assertEquals(TITLES + 1, result.getTotalSuccessful());
+        assertEquals(rows.size() - TITLES - 1, result.getTotalSkipped());
+        int inFile = 0;
+        int inDatabase = 0;
+        for (Film film : result.getSkippedDuplicates()) {
+            if (film.getFailureReason().equals(DuplicateDetector.IN_FILE)) {
+                inFile++;
+            } else {
+                assertEquals(DuplicateDetector.IN_DATABASE, film.getFailureReason());
+                inDatabase++;
+            }
+        }
+        assertTrue(inFile > 0);
+        assertTrue(inDatabase > 0);
+        assertEquals(TITLES + 1, database.getTitles().size());
+    }
+
+    /**
+     * Films that are already in the database are skipped, and every other film is imported.
+     */
+    public void testFilmsInDatabaseAreSkipped() throws Exception
+    {
+        for (int i = 0; i < TITLES; i += 3) {
+            database.addFilm("Film " + i, 2000);
+        }
+        int existing = database.getTitles().size();
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < TITLES; i++) {
+            rows.add(row(i % 2 == 0 ? "film " + i : "Film " + i, 2000));
+        }
+        write(rows);
+
+        for (int workers : new int[] { 1, 3 }) {
+            ImportResult result = service(workers).importFilmsFromCSV(file.toString());
+            int imported = workers == 1 ? TITLES - existing : 0;
+            assertEquals(imported, result.getTotalSuccessful());
+            assertEquals(TITLES - imported, result.getTotalSkipped());
+            assertEquals(DuplicateDetector.IN_DATABASE, result.getSkippedDuplicates().get(0).getFailureReason());
+            assertEquals(TITLES, database.getTitles().size());
+        }
+    }
+
+    /**
+     * When the copies of a film are in chunks that different threads check at the same time, exactly one copy
+     * is imported.
+     */
+    public void testConcurrentDuplicatesAreImportedOnce() throws Exception
+    {
+        List<String> rows = new ArrayList<>();
+        for (int chunk = 0; chunk < TITLES / BATCH_SIZE; chunk++) {
+            for (int copy = 0; copy < 3; copy++) {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    rows.add(row("Film " + (chunk * BATCH_SIZE + i), 2000));
+                }
+            }
+        }
+        write(rows);
+        database.setRoundTripMicros(50);
+
+        ImportResult result = service(3).importFilmsFromCSV(file.toString());
+
+        assertEquals(TITLES, result.getTotalSuccessful());
+        assertEquals(2 * TITLES, result.getTotalSkipped());
+        List<String> titles = database.getTitles();
+        assertEquals(TITLES, titles.size());
+        assertEquals(TITLES, new HashSet<>(titles).size());
+    }
+
+    /**
+     * A loaded catalog that holds every film in the database is used instead of reading the titles from the
+     * database, and one that misses a film is not, so the film it misses is still found.
+     */
+    public void testLoadedCatalogIsUsedOnlyWhenComplete() throws Exception
+    {
+        database.addFilm("Alien", 1979);
+        database.addFilm("Heat", 1995);
+        write(Arrays.asList(row("Alien", 1979)));
+        List<Film> alien = Arrays.asList(new Film("Alien", null, 1979, "Horror"));
+
+        CatalogFilmHandler complete = catalog(new Film("Alien", null, 1979, "Horror"), new Film("Heat", null, 1995, "Crime"));
+        assertEquals(1, roundTripsToLoad(complete, alien));
+
+        CatalogFilmHandler missingAlien = catalog(new Film("Heat", null, 1995, "Crime"));
+        assertEquals(2, roundTripsToLoad(missingAlien, alien));
+
+        CatalogFilmHandler notLoaded = new CatalogFilmHandler(source());
+        assertEquals(2, roundTripsToLoad(notLoaded, alien));
+    }
+
+    /**
+     * Loads a detector with the catalog, checks that it finds the given films in the database and returns how
+     * many round trips the load took.
+     */
+    private int roundTripsToLoad(CatalogFilmHandler catalog, List<Film> inDatabase) throws Exception
+    {
+        try (Connection conn = DatabaseConnection.getConnection();
+             FilmDAO filmDAO = new FilmDAO(conn, BATCH_SIZE)) {
+            int before = database.getRoundTrips();
+            DuplicateDetector duplicates = DuplicateDetector.load(filmDAO, ImportCheckpoint.start(file.toString()), catalog);
+            int roundTrips = database.getRoundTrips() - before;
+
+            ImportResult result = new ImportResult();
+            assertTrue(duplicates.skipDuplicates(inDatabase, filmDAO, result).isEmpty());
+            assertEquals(inDatabase.size(), result.getTotalSkipped());
+            return roundTrips;
+        }
+    }
+
+    private static CatalogFilmHandler catalog(Film... films)
+    {
+        CatalogFilmHandler catalog = new CatalogFilmHandler(source(films));
+        catalog.getSnapshot();
+        assertTrue(catalog.isLoaded());
+        return catalog;
+    }
+
+    /**
+     * A film source that only answers the query the catalog loads its films with.
+     */
+    private static FilmHandler source(Film... films)
+    {
+        return (FilmHandler) Proxy.newProxyInstance(DuplicateDetectionTest.class.getClassLoader(),
+                new Class<?>[] { FilmHandler.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("streamFilmSummaries")) {
+                        return Arrays.stream(films);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private FilmImportService service(int workers)
+    {
+        FilmImportService service = new FilmImportService();
+        service.setWorkerCount(workers);
+        service.setBatchSize(BATCH_SIZE);
+        service.setCommitInterval(BATCH_SIZE);
+        service.setCheckpointFile(checkpointFile);
+        service.setSkipDuplicates(true);
+        service.setBulkLoad(false);
+        return service;
+    }
+
+    private static String row(String title, int releaseYear)
+    {
+        return "\"" + title + "\",\"Description\"," + releaseYear + ",Drama";
+    }
+
+    private void write(List<String> rows) throws Exception
+    {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,description,releaseYear,genre\n");
+            for (String row : rows) {
+                out.write(row + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package film;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory stand-in for the film, film_category and category tables, served through a JDBC driver for
+ * jdbc:mysql: urls, so that DatabaseConnection and its pool can be used without a database. Like FilmDAOTest,
+ * it is built from Proxy-based fakes of Connection, PreparedStatement and ResultSet, and only understands the
+ * statements the import code sends.
+ *
+ * <p>Inserted films stay private to their connection until it commits, and savepoints and rollbacks work
+ * as they do in MySQL. Every statement that is executed counts as a round trip to the server, which can
+ * be given a delay to simulate the network.
+ *
+ * <p>There is one database per JVM, since the pool of DatabaseConnection keeps its connections between
+ * tests. {@link #install()} empties it and puts it in place of the real driver, {@link #uninstall()} puts
+ * the real driver back.
+ */
+final class FakeFilmDatabase implements Driver
+{
+    private static final FakeFilmDatabase INSTANCE = new FakeFilmDatabase();
+
+    /** The drivers replaced by {@link #install()} */
+    private static final List<Driver> replaced = new ArrayList<>();
+
+    /** Committed films, in insert order */
+    private final List<Row> films = new ArrayList<>();
+
+    /** Category IDs by name, not case sensitive */
+    private final Map<String, Integer> categories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final AtomicInteger nextFilmId = new AtomicInteger();
+    private final AtomicInteger roundTrips = new AtomicInteger();
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger failedCommits = new AtomicInteger();
+
+    private volatile long roundTripNanos;
+    private volatile int failingCommit;
+    private volatile String failingTitle;
+
+    private FakeFilmDatabase()
+    {
+    }
+
+    /**
+     * Empties the database, leaving the categories Drama, Action and Comedy, and puts it in place of the
+     * drivers registered for jdbc:mysql: urls.
+     *
+     * @return the database
+     */
+    static synchronized FakeFilmDatabase install() throws SQLException
+    {
+        INSTANCE.reset();
+        for (Enumeration<Driver> drivers = DriverManager.getDrivers(); drivers.hasMoreElements();) {
+            Driver driver = drivers.nextElement();
+            if (driver != INSTANCE && driver.acceptsURL("jdbc:mysql://localhost/")) {
+                DriverManager.deregisterDriver(driver);
+                replaced.add(driver);
+            }
+        }
+        DriverManager.registerDriver(INSTANCE);
+        return INSTANCE;
+    }
+
+    /**
+     * Puts back the drivers replaced by {@link #install()}.
+     */
+    static synchronized void uninstall() throws SQLException
+    {
+        DriverManager.deregisterDriver(INSTANCE);
+        for (Driver driver : replaced) {
+            DriverManager.registerDriver(driver);
+        }
+        replaced.clear();
+    }
+
+    private synchronized void reset()
+    {
+        films.clear();
+        categories.clear();
+        categories.put("Drama", 1);
+        categories.put("Action", 2);
+        categories.put("Comedy", 3);
+        nextFilmId.set(1000);
+        roundTrips.set(0);
+        commits.set(0);
+        failedCommits.set(0);
+        roundTripNanos = 0;
+        failingCommit = 0;
+        failingTitle = null;
+    }
+
+    /**
+     * Adds a committed film, as if it had been imported before.
+     */
+    synchronized void addFilm(String title, int releaseYear)
+    {
+        films.add(new Row(nextFilmId.getAndIncrement(), title, releaseYear));
+    }
+
+    /**
+     * Delays every statement, to simulate the round trip to a database server.
+     */
+    void setRoundTripMicros(long micros)
+    {
+        roundTripNanos = micros * 1000;
+    }
+
+    /**
+     * Makes the given commit fail, counting from 1, and roll back what it would have committed.
+     */
+    void failCommit(int commit)
+    {
+        failingCommit = commit;
+    }
+
+    /**
+     * Makes every insert of a film with the given title fail.
+     */
+    void failInsertOf(String title)
+    {
+        failingTitle = title;
+    }
+
+    /**
+     * Returns the titles of the committed films, in the order they were committed.
+     */
+    synchronized List<String> getTitles()
+    {
+        List<String> titles = new ArrayList<>(films.size());
+        for (Row film : films) {
+            titles.add(film.title);
+        }
+        return titles;
+    }
+
+    int getRoundTrips()
+    {
+        return roundTrips.get();
+    }
+
+    int getCommits()
+    {
+        return commits.get();
+    }
+
+    int getFailedCommits()
+    {
+        return failedCommits.get();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info)
+    {
+        return acceptsURL(url) ? new FakeConnection().proxy() : null;
+    }
+
+    @Override
+    public boolean acceptsURL(String url)
+    {
+        return url != null && url.startsWith("jdbc:mysql:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+    {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion()
+    {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant()
+    {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger()
+    {
+        return Logger.getGlobal();
+    }
+
+    private void roundTrip()
+    {
+        roundTrips.incrementAndGet();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    /**
+     * Returns the default value of a method that the fakes do not implement.
+     */
+    private static Object defaultValue(Class<?> type)
+    {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static final class Row
+    {
+        private final int filmId;
+        private final String title;
+        private final int releaseYear;
+
+        private Row(int filmId, String title, int releaseYear)
+        {
+            this.filmId = filmId;
+            this.title = title;
+            this.releaseYear = releaseYear;
+        }
+    }
+
+    /**
+     * A connection with its own uncommitted films.
+     */
+    private final class FakeConnection
+    {
+        private final List<Row> pending = new ArrayList<>();
+        private final Map<Savepoint, Integer> savepoints = new HashMap<>();
+        private boolean autoCommit = true;
+        private boolean closed;
+
+        private Connection proxy()
+        {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                            case "createStatement":
+                                return new FakeStatement(this, args == null ? null : (String) args[0]).proxy();
+                            case "setAutoCommit":
+                                if ((Boolean) args[0] && !autoCommit) {
+                                    commit();
+                                }
+                                autoCommit = (Boolean) args[0];
+                                return null;
+                            case "getAutoCommit":
+                                return autoCommit;
+                            case "commit":
+                                commit();
+                                return null;
+                            case "rollback":
+                                rollback(args == null ? null : (Savepoint) args[0]);
+                                return null;
+                            case "setSavepoint":
+                                return setSavepoint();
+                            case "releaseSavepoint":
+                                savepoints.remove(args[0]);
+                                return null;
+                            case "isValid":
+                                return !closed;
+                            case "isClosed":
+                                return closed;
+                            case "close":
+                                closed = true;
+                                return null;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "FakeFilmDatabase connection";
+                            default:
+                                return defaultValue(method.getReturnType());
+                        }
+                    });
+        }
+
+        private void commit() throws SQLException
+        {
+            roundTrip();
+            int commit = commits.incrementAndGet();
+            if (commit == failingCommit) {
+                failedCommits.incrementAndGet();
+                pending.clear();
+                throw new SQLException("Commit " + commit + " failed");
+            }
+            synchronized (FakeFilmDatabase.this) {
+                films.addAll(pending);
+            }
+            pending.clear();
+            savepoints.clear();
+        }
+
+        private void rollback(Savepoint savepoint)
+        {
+            roundTrip();
+            if (savepoint == null) {
+                pending.clear();
+                savepoints.clear();
+            } else {
+                int size = savepoints.get(savepoint);
+                pending.subList(size, pending.size()).clear();
+            }
+        }
+
+        private Savepoint setSavepoint()
+        {
+            roundTrip();
+            Savepoint savepoint = (Savepoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Savepoint.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return defaultValue(method.getReturnType());
+                        }
+                    });
+            savepoints.put(savepoint, pending.size());
+            return savepoint;
+        }
+
+        /**
+         * Inserts films, all or none of them, and returns their generated IDs.
+         */
+        private int[] insertFilms(List<Map<Integer, Object>> rows) throws SQLException
+        {
+            for (Map<Integer, Object> row : rows) {
+                if (row.get(1).equals(failingTitle)) {
+                    throw new SQLException("Data too long for column 'title'");
+                }
+            }
+            int[] filmIds = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Map<Integer, Object> row = rows.get(i);
+                filmIds[i] = nextFilmId.getAndIncrement();
+                pending.add(new Row(filmIds[i], (String) row.get(1), (Integer) row.get(3)));
+            }
+            if (autoCommit) {
+                commit();
+            }
+            return filmIds;
+        }
+
+        /**
+         * Finds the committed films, and the films of this connection, with any of the given titles.
+         */
+        private List<Object[]> findByTitle(List<Object> titles)
+        {
+            List<Row> visible;
+            synchronized (FakeFilmDatabase.this) {
+                visible = new ArrayList<>(films);
+            }
+            visible.addAll(pending);
+            List<Object[]> found = new ArrayList<>();
+            for (Row film : visible) {
+                for (Object title : titles) {
+                    if (film.title.trim().equalsIgnoreCase(((String) title).trim())) {
+                        found.add(new Object[] { film.title, film.releaseYear });
+                        break;
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * A statement of a fake connection, prepared or not.
+     */
+    private final class FakeStatement
+    {
+        private final FakeConnection connection;
+        private final String preparedSql;
+        private Map<Integer, Object> parameters = new HashMap<>();
+        private final List<Map<Integer, Object>> batch = new ArrayList<>();
+        private int[] generatedKeys = new int[0];
+
+        private FakeStatement(FakeConnection connection, String preparedSql)
+        {
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+        }
+
+        private PreparedStatement proxy()
+        {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setString":
+                            case "setInt":
+                            case "setDouble":
+                            case "setObject":
+                                parameters.put((Integer) args[0], args[1]);
+                                return null;
+                            case "addBatch":
+                                batch.add(parameters);
+                                parameters = new HashMap<>(parameters);
+                                return null;
+                            case "clearBatch":
+                                batch.clear();
+                                return null;
+                            case "executeBatch":
+                                return executeBatch();
+                            case "executeUpdate":
+                                return execute(Collections.singletonList(parameters)).length;
+                            case "executeQuery":
+                                return executeQuery(args == null ? preparedSql : (String) args[0]);
+                            case "getGeneratedKeys":
+                                List<Object[]> keys = new ArrayList<>();
+                                for (int key : generatedKeys) {
+                                    keys.add(new Object[] { key });
+                                }
+                                return resultSet(keys, "GENERATED_KEY");
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return defaultValue(method.getReturnType());
+                        }
+                    });
+        }
+
+        private int[] executeBatch() throws SQLException
+        {
+            List<Map<Integer, Object>> rows = new ArrayList<>(batch);
+            batch.clear();
+            if (rows.isEmpty()) {
+                return new int[0];
+            }
+            int[] counts = execute(rows);
+            Arrays.fill(counts, 1);
+            return counts;
+        }
+
+        private int[] execute(List<Map<Integer, Object>> rows) throws SQLException
+        {
+            roundTrip();
+            String sql = preparedSql.toUpperCase(Locale.ROOT);
+            if (sql.startsWith("INSERT INTO FILM (")) {
+                generatedKeys = connection.insertFilms(rows);
+            } else if (sql.startsWith("INSERT INTO CATEGORY")) {
+                generatedKeys = new int[rows.size()];
+                synchronized (FakeFilmDatabase.this) {
+                    for (int i = 0; i < rows.size(); i++) {
+                        generatedKeys[i] = categories.size() + 1;
+                        categories.put((String) rows.get(i).get(1), generatedKeys[i]);
+                    }
+                }
+            } else if (!sql.startsWith("INSERT INTO FILM_CATEGORY") && !sql.startsWith("INSERT INTO FILM_TEXT")) {
+                throw new SQLException("Statement not supported by the fake database: " + preparedSql);
+            }
+            return new int[rows.size()];
+        }
+
+        private ResultSet executeQuery(String sql) throws SQLException
+        {
+            roundTrip();
+            if (sql.equals("SELECT COUNT(*) FROM film")) {
+                synchronized (FakeFilmDatabase.this) {
+                    return resultSet(Collections.singletonList(new Object[] { films.size() }), "COUNT(*)");
+                }
+            } else if (sql.equals("SELECT title, release_year FROM film")) {
+                List<Object[]> rows = new ArrayList<>();
+                synchronized (FakeFilmDatabase.this) {
+                    for (Row film : films) {
+                        rows.add(new Object[] { film.title, film.releaseYear });
+                    }
+                }
+                return resultSet(rows, "title", "release_year");
+            } else if (sql.startsWith("SELECT title, release_year FROM film WHERE title IN (")) {
+                List<Object> titles = new ArrayList<>(new TreeMap<>(parameters).values());
+                return resultSet(connection.findByTitle(titles), "title", "release_year");
+            } else if (sql.equals("SELECT category_id, name FROM category")) {
+                List<Object[]> rows = new ArrayList<>();
+                synchronized (FakeFilmDatabase.this) {
+                    for (Map.Entry<String, Integer> category : categories.entrySet()) {
+                        rows.add(new Object[] { category.getValue(), category.getKey() });
+                    }
+                }
+                return resultSet(rows, "category_id", "name");
+            }
+            throw new SQLException("Query not supported by the fake database: " + sql);
+        }
+    }
+
+    /**
+     * A result set over the given rows, whose columns can be read by index or by label.
+     */
+    private static ResultSet resultSet(List<Object[]> rows, String... labels)
+    {
+        int[] current = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(FakeFilmDatabase.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++current[0] < rows.size();
+                        case "getInt":
+                        case "getString":
+                        case "getObject":
+                            int column = args[0] instanceof Integer ? (Integer) args[0] - 1
+                                    : Arrays.asList(labels).indexOf(args[0]);
+                            Object value = rows.get(current[0])[column];
+                            return method.getName().equals("getString") ? String.valueOf(value) : value;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+}
@@ -0,0 +1,139 @@
+package film;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that an import that failed part way continues after its last checkpoint and ends up importing every
+ * row once, on one thread and on several, and that imports of different files keep separate checkpoints.
+ * It runs against a {@link FakeFilmDatabase}.
+ */
+public class ImportCheckpointTest extends TestCase
+{
+    private static final int ROWS = 2_000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private FakeFilmDatabase database;
+    private Path first;
+    private Path second;
+    private Path checkpointFile;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        database = FakeFilmDatabase.install();
+        first = writeFilms("First ");
+        second = writeFilms("Second ");
+        checkpointFile = first.resolveSibling("import-checkpoint-test.checkpoint");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        for (Path file : new Path[] { first, second }) {
+            Files.deleteIfExists(ImportCheckpoint.fileFor(checkpointFile, file.toString()));
+            Files.deleteIfExists(file);
+        }
+        FakeFilmDatabase.uninstall();
+    }
+
+    /**
+     * A sequential import continues after its checkpoint and imports every row once.
+     */
+    public void testSequentialImportResumesAfterFailure() throws Exception
+    {
+        assertResumes(1);
+    }
+
+    /**
+     * An import on several threads continues after its checkpoint; rows committed after the checkpoint are
+     * read again and skipped as duplicates, so every row is imported once.
+     */
+    public void testPipelineImportResumesAfterFailure() throws Exception
+    {
+        assertResumes(3);
+    }
+
+    /**
+     * Each file has a checkpoint file of its own, so importing a second file leaves the checkpoint of an
+     * interrupted import of the first in place.
+     */
+    public void testCheckpointsAreKeptPerFile() throws Exception
+    {
+        assertFalse(ImportCheckpoint.fileFor(checkpointFile, first.toString())
+                .equals(ImportCheckpoint.fileFor(checkpointFile, second.toString())));
+
+        database.failCommit(5);
+        try {
+            service(1).importFilmsFromCSV(first.toString());
+            fail("The import should fail");
+        } catch (ImportFailedException e) {
+            // the checkpoint of the first file is kept
+        }
+        ImportCheckpoint saved = ImportCheckpoint.read(ImportCheckpoint.fileFor(checkpointFile, first.toString()));
+        assertNotNull(saved);
+
+        ImportResult other = service(1).importFilmsFromCSV(second.toString());
+        assertEquals(0, other.getResumedFromRow());
+        assertEquals(ROWS, other.getTotalSuccessful());
+
+        ImportResult resumed = service(1).importFilmsFromCSV(first.toString());
+        assertEquals(saved.getRowNumber(), resumed.getResumedFromRow());
+        assertEquals(2 * ROWS, new HashSet<>(database.getTitles()).size());
+    }
+
+    private void assertResumes(int workers) throws Exception
+    {
+        database.failCommit(8);
+        ImportResult failed = null;
+        try {
+            service(workers).importFilmsFromCSV(first.toString());
+            fail("The import should fail");
+        } catch (ImportFailedException e) {
+            failed = e.getResult();
+        }
+        assertTrue(failed.getTotalSuccessful() > 0);
+
+        ImportResult resumed = service(workers).importFilmsFromCSV(first.toString());
+        assertTrue(resumed.getResumedFromRow() > 0);
+        assertEquals(ROWS, resumed.getResumedFromRow() + resumed.getTotalSuccessful() + resumed.getTotalSkipped());
+
+        List<String> titles = database.getTitles();
+        assertEquals(ROWS, titles.size());
+        assertEquals(ROWS, new HashSet<>(titles).size());
+        assertEquals(ROWS, failed.getTotalSuccessful() + resumed.getTotalSuccessful());
+        assertFalse(Files.exists(ImportCheckpoint.fileFor(checkpointFile, first.toString())));
+    }
+
+    private FilmImportService service(int workers)
+    {
+        FilmImportService service = new FilmImportService();
+        service.setWorkerCount(workers);
+        service.setBatchSize(BATCH_SIZE);
+        service.setCommitInterval(BATCH_SIZE);
+        service.setCheckpointFile(checkpointFile);
+        service.setSkipDuplicates(true);
+        service.setBulkLoad(false);
+        return service;
+    }
+
+    private static Path writeFilms(String titlePrefix) throws IOException
+    {
+        Path file = Files.createTempFile("import-checkpoint", ".csv");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,description,releaseYear,genre\n");
+            for (int i = 0; i < ROWS; i++) {
+                out.write("\"" + titlePrefix + i + "\",\"Description\"," + (1950 + i % 70) + ",Drama\n");
+            }
+        }
+        return file;
+    }
+}
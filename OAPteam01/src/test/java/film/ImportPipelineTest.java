@@ -0,0 +1,139 @@
+package film;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that an import on several threads, run through {@link ImportPipeline}, imports every row once, only
+ * writes checkpoints up to rows that have all been committed, and stops every stage after a failure. It runs
+ * against a {@link FakeFilmDatabase}.
+ */
+public class ImportPipelineTest extends TestCase
+{
+    private static final int ROWS = 5_000;
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int WORKERS = 3;
+
+    private FakeFilmDatabase database;
+    private Path file;
+    private Path checkpointFile;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        database = FakeFilmDatabase.install();
+        file = Files.createTempFile("import-pipeline", ".csv");
+        checkpointFile = file.resolveSibling("import-pipeline.checkpoint");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,description,releaseYear,genre\n");
+            for (int i = 0; i < ROWS; i++) {
+                out.write("\"Film " + i + "\",\"Description\"," + (1950 + i % 70) + "," + (i % 2 == 0 ? "Drama" : "Action") + "\n");
+            }
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        Files.deleteIfExists(ImportCheckpoint.fileFor(checkpointFile, file.toString()));
+        Files.deleteIfExists(file);
+        FakeFilmDatabase.uninstall();
+    }
+
+    /**
+     * Every row is committed exactly once and counted as imported, and the checkpoint is removed at the end.
+     */
+    public void testEveryRowIsImportedOnce() throws Exception
+    {
+        ImportResult result = service().importFilmsFromCSV(file.toString());
+
+        assertEquals(ROWS, result.getTotalSuccessful());
+        assertEquals(0, result.getTotalFailed());
+        assertEquals(0, result.getTotalSkipped());
+        List<String> titles = database.getTitles();
+        assertEquals(ROWS, titles.size());
+        assertEquals(ROWS, new HashSet<>(titles).size());
+        assertFalse(Files.exists(ImportCheckpoint.fileFor(checkpointFile, file.toString())));
+    }
+
+    /**
+     * After a failed commit, the import throws with a result that counts exactly the committed films, no
+     * import thread keeps running, and the checkpoint lies before the first row that was not committed,
+     * however the writers finished their batches.
+     */
+    public void testFailureStopsAllStagesAndKeepsCheckpointBehindCommits() throws Exception
+    {
+        database.setRoundTripMicros(50);
+        database.failCommit(20);
+        try {
+            service().importFilmsFromCSV(file.toString());
+            fail("The import should fail");
+        } catch (ImportFailedException e) {
+            List<String> titles = database.getTitles();
+            assertEquals(titles.size(), e.getResult().getTotalSuccessful());
+            assertTrue(titles.size() < ROWS);
+
+            ImportCheckpoint checkpoint = ImportCheckpoint.read(ImportCheckpoint.fileFor(checkpointFile, file.toString()));
+            assertNotNull(checkpoint);
+            Set<String> committed = new HashSet<>(titles);
+            for (int i = 0; i < checkpoint.getRowNumber(); i++) {
+                assertTrue("Row " + (i + 1) + " is before the checkpoint but not committed",
+                        committed.contains("Film " + i));
+            }
+        }
+        assertFalse("Import threads still running", importThreadsAlive());
+    }
+
+    /**
+     * A film that fails to insert is reported as failed, while the rest of its batch is imported.
+     */
+    public void testFailedInsertOnlyFailsItsFilm() throws Exception
+    {
+        database.failInsertOf("Film 123");
+        ImportResult result = service().importFilmsFromCSV(file.toString());
+
+        assertEquals(ROWS - 1, result.getTotalSuccessful());
+        assertEquals(1, result.getTotalFailed());
+        assertEquals("Film 123", result.getFailedImports().get(0).getTitle());
+        assertEquals(ROWS - 1, database.getTitles().size());
+    }
+
+    private FilmImportService service()
+    {
+        FilmImportService service = new FilmImportService();
+        service.setWorkerCount(WORKERS);
+        service.setBatchSize(BATCH_SIZE);
+        service.setCommitInterval(BATCH_SIZE);
+        service.setCheckpointFile(checkpointFile);
+        service.setSkipDuplicates(false);
+        service.setBulkLoad(false);
+        return service;
+    }
+
+    /**
+     * Returns whether any import thread is still alive, waiting a little for them to finish.
+     */
+    private static boolean importThreadsAlive() throws InterruptedException
+    {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            boolean alive = false;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                alive |= thread.isAlive() && thread.getName().startsWith("film-import-");
+            }
+            if (!alive) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,119 @@
+package film;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import db.DatabaseConnection;
+import db.FilmDAO;
+
+/**
+ * Compares the throughput of a CSV import that inserts one row at a time with one that inserts batches of
+ * {@link FilmDAO#DEFAULT_BATCH_SIZE} rows. It is not run by the build; run its main method with the test
+ * classpath, for example from the IDE:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; film.ImportThroughputBenchmark [rows] [round trip micros]
+ * </pre>
+ *
+ * <p>By default the imports run against a {@link FakeFilmDatabase} that delays every statement by the given
+ * round trip time (default 200 microseconds, a database on the local network), so the numbers can be reproduced
+ * anywhere. A round trip time of -1 imports into the database of DatabaseConnection instead, and deletes the
+ * imported films afterwards.
+ *
+ * <p>10,000 rows at 200 microseconds per round trip, on one core: one row at a time about 1,280 films/s,
+ * batches of 500 rows 76,000 to 84,000 films/s, 60 to 65 times as many. Without a round trip delay the
+ * difference shrinks to 1.3 times, so the gain of batching is the round trips it saves.
+ */
+public class ImportThroughputBenchmark
+{
+    /** Start of the title of every generated film, to find them again in a real database */
+    private static final String TITLE_PREFIX = "Import benchmark ";
+
+    /** Number of times each import is run; the fastest run is reported */
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long roundTripMicros = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+        Path file = Files.createTempFile("import-benchmark", ".csv");
+        try {
+            writeFilms(file, rows);
+            if (roundTripMicros >= 0) {
+                FakeFilmDatabase.install().setRoundTripMicros(roundTripMicros);
+            }
+            double rowByRow = measure(file, 1, roundTripMicros < 0);
+            double batched = measure(file, FilmDAO.DEFAULT_BATCH_SIZE, roundTripMicros < 0);
+            System.out.printf("%,d rows, %s%n", rows,
+                    roundTripMicros < 0 ? "real database" : roundTripMicros + " microseconds per round trip");
+            System.out.printf("batch size 1:   %,10.0f films/s%n", rowByRow);
+            System.out.printf("batch size %d: %,10.0f films/s (%.1fx)%n", FilmDAO.DEFAULT_BATCH_SIZE, batched, batched / rowByRow);
+        } finally {
+            Files.delete(file);
+            if (roundTripMicros >= 0) {
+                FakeFilmDatabase.uninstall();
+            }
+        }
+    }
+
+    /**
+     * Imports the file a few times with the given batch size and returns the best throughput.
+     */
+    private static double measure(Path file, int batchSize, boolean realDatabase) throws Exception
+    {
+        FilmImportService service = new FilmImportService();
+        service.setBatchSize(batchSize);
+        service.setWorkerCount(1);
+        service.setCommitInterval(0);
+        service.setSkipDuplicates(false);
+        service.setBulkLoad(false);
+
+        double best = 0;
+        for (int run = 0; run < RUNS; run++) {
+            ImportResult result = service.importFilmsFromCSV(file.toString());
+            if (result.getTotalFailed() > 0) {
+                throw new IllegalStateException(result.getTotalFailed() + " films failed to import");
+            }
+            best = Math.max(best, result.getFilmsPerSecond());
+            if (realDatabase) {
+                deleteFilms();
+            }
+        }
+        return best;
+    }
+
+    private static void writeFilms(Path file, int rows) throws IOException
+    {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,description,releaseYear,genre\n");
+            for (int i = 0; i < rows; i++) {
+                out.write("\"" + TITLE_PREFIX + i + "\",\"A film generated to measure imports\"," + (1950 + i % 70) + ",Drama\n");
+            }
+        }
+    }
+
+    /**
+     * Deletes the films imported into a real database.
+     */
+    private static void deleteFilms() throws SQLException
+    {
+        String films = "SELECT film_id FROM film WHERE title LIKE '" + TITLE_PREFIX + "%'";
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (String sql : new String[] {
+                    "DELETE FROM film_category WHERE film_id IN (SELECT film_id FROM (" + films + ") AS f)",
+                    "DELETE FROM film_text WHERE film_id IN (SELECT film_id FROM (" + films + ") AS f)",
+                    "DELETE FROM film WHERE title LIKE '" + TITLE_PREFIX + "%'" }) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that ParallelCatalogSearch finds the same positions, in the same order, as a plain sequential scan.
+ * The searches cover 50,000 positions, well above the sequential threshold of 8192, so they are split into
+ * chunks whose packed sort keys and positions are merged back together.
+ */
+public class ParallelCatalogSearchTest extends TestCase
+{
+    private static final int COUNT = 50_000;
+
+    private static final int[] LIMITS = { 0, 1, 7, 100, 8192, 8193, 20_000, COUNT + 1 };
+
+    private final Random random = new Random(42);
+
+    private int[] years;
+
+    @Override
+    protected void setUp()
+    {
+        years = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            years[i] = 1950 + random.nextInt(75); // many films share a year, to check that ties keep position order
+        }
+    }
+
+    /**
+     * Searching all positions in position order matches a scan, with and without a limit.
+     */
+    public void testPositionOrderMatchesScan()
+    {
+        ParallelCatalogSearch.PositionFilter filter = position -> years[position] % 3 != 0;
+        for (int limit : LIMITS) {
+            assertSearch(null, filter, null, limit);
+        }
+    }
+
+    /**
+     * Sort keys, including negative ones, order the results like a stable sort of a scan.
+     */
+    public void testSortKeysMatchSortedScan()
+    {
+        ParallelCatalogSearch.PositionFilter filter = position -> years[position] >= 1980;
+        ParallelCatalogSearch.SortKey oldestFirst = position -> years[position];
+        ParallelCatalogSearch.SortKey newestFirst = position -> -years[position];
+        for (int limit : LIMITS) {
+            assertSearch(null, filter, oldestFirst, limit);
+            assertSearch(null, filter, newestFirst, limit);
+        }
+    }
+
+    /**
+     * Searching a list of candidate positions matches a scan of those candidates.
+     */
+    public void testCandidatePositionsMatchScan()
+    {
+        int[] candidates = new int[COUNT / 2];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = i * 2 + random.nextInt(2);
+        }
+        ParallelCatalogSearch.PositionFilter filter = position -> years[position] % 2 == 0;
+        ParallelCatalogSearch.SortKey newestFirst = position -> -years[position];
+        for (int limit : LIMITS) {
+            assertSearch(candidates, filter, null, limit);
+            assertSearch(candidates, filter, newestFirst, limit);
+        }
+    }
+
+    /**
+     * A filter that matches nothing, or only the last position, gives the same results as a scan.
+     */
+    public void testSparseMatchesMatchScan()
+    {
+        assertSearch(null, position -> false, null, 0);
+        assertSearch(null, position -> position == COUNT - 1, null, 1);
+        assertSearch(null, position -> position == COUNT - 1, position -> -position, 0);
+    }
+
+    private void assertSearch(int[] positions, ParallelCatalogSearch.PositionFilter filter,
+            ParallelCatalogSearch.SortKey sortKey, int limit)
+    {
+        int count = positions == null ? COUNT : positions.length;
+        int[] expected = scan(positions, count, filter, sortKey, limit);
+        int[] actual = ParallelCatalogSearch.search(positions, count, filter, sortKey, limit);
+        assertTrue("limit " + limit + ", sorted " + (sortKey != null) + ": expected " + expected.length
+                + " positions, got " + actual.length, Arrays.equals(expected, actual));
+    }
+
+    /**
+     * The brute force search: filter every position in order, sort stably by key and cut to the limit.
+     */
+    private static int[] scan(int[] positions, int count, ParallelCatalogSearch.PositionFilter filter,
+            ParallelCatalogSearch.SortKey sortKey, int limit)
+    {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int position = positions == null ? i : positions[i];
+            if (filter.matches(position)) {
+                found.add(position);
+            }
+        }
+        if (sortKey != null) {
+            found.sort(Comparator.comparingInt(sortKey::key));
+        }
+        if (limit > 0 && found.size() > limit) {
+            found = found.subList(0, limit);
+        }
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+}